@@ -22,7 +22,7 @@ public class App {
             String url = "jdbc:postgresql://training-db.czu9b8kfiorj.us-east-2.rds.amazonaws.com:5432/postgres?currentSchema=project-1";
 
             // create user orm instance
-            AdeOrm uAdeOrm = new AdeOrm(User.class);
+            AdeOrm<User> uAdeOrm = new AdeOrm<>(User.class);
 
             uAdeOrm.setConnectionPool(url, 10);
             // set connection
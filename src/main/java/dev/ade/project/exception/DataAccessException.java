@@ -0,0 +1,12 @@
+package dev.ade.project.exception;
+
+/**
+ * Thrown where a checked exception cannot be, e.g. when the database fails while
+ * a stream of records is being read
+ */
+public class DataAccessException extends RuntimeException {
+
+    public DataAccessException(String message, Exception e){
+        super(message, e);
+    }
+}
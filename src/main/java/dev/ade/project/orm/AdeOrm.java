@@ -1,29 +1,37 @@
 package dev.ade.project.orm;
 
-import dev.ade.project.annotations.ColumnName;
-import dev.ade.project.annotations.PrimaryKey;
-import dev.ade.project.annotations.TableName;
 import dev.ade.project.exception.ArgumentFormatException;
 import dev.ade.project.util.BasicConnectionPoolUtil;
+import dev.ade.project.util.ColumnReader;
 import dev.ade.project.util.ConnectionUtil;
 import dev.ade.project.util.MapperUtil;
+import dev.ade.project.util.PoolConfig;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.*;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The AdeOrm class maps one POJO class to its table. It holds no connection or
+ * transaction state: statements run on the connection of the {@link Session} bound
+ * to the calling thread, or on a connection borrowed for the call, so one instance
+ * per entity class can be shared between threads.
+ */
+public class AdeOrm<T> implements Mapper<T> {
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int IN_LIST_SIZE = 500;
 
-public class AdeOrm implements Mapper {
     // A POJO class mirror with a table in the db
-    private Class<?> clazz;
-    private Connection conn;
-    private boolean isTransaction;
-    private List<Boolean> completes;
-
-    public AdeOrm() {}
+    private final Class<T> clazz;
+    private final EntityMetadata metadata;
+    private final QueryOptions options;
+
+    public AdeOrm() {
+        this.clazz = null;
+        this.metadata = null;
+        this.options = new QueryOptions();
+    }
 
     /**
      * Constructor for create an orm instance for one POJO class
@@ -31,8 +39,98 @@ public class AdeOrm implements Mapper {
      * @param clazz the class of a POJO class
      * @return AdeOrm instance
      */
-    public AdeOrm(Class<?> clazz) {
+    public AdeOrm(Class<T> clazz) {
+        this(clazz, new QueryOptions());
+    }
+
+    private AdeOrm(Class<T> clazz, QueryOptions options) {
         this.clazz = clazz;
+        this.metadata = EntityMetadata.of(clazz);
+        this.options = new QueryOptions(options);
+    }
+
+    /**
+     * Create an orm instance for the same POJO class whose select statements use
+     * the given fetch size, max rows, query timeout and read-only hint
+     *
+     * @param options result set settings, copied
+     * @return AdeOrm instance
+     */
+    public AdeOrm<T> withOptions(QueryOptions options) {
+        return new AdeOrm<>(clazz, options);
+    }
+
+    /**
+     * @return a copy of the result set settings of the select statements
+     */
+    public QueryOptions getQueryOptions() {
+        return new QueryOptions(options);
+    }
+
+    EntityMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Enable the process-wide second-level cache of the POJO class, shared by every AdeOrm of
+     * the class. Records looked up by primary key are then read from the database once until
+     * they are written through AdeOrm, evicted or expired. Writes made to the table without
+     * AdeOrm are not seen until the records expire.
+     *
+     * @param maxSize maximum number of cached records, least recently used ones are evicted first
+     * @param timeToLive milliseconds a record stays cached, 0 for no expiry
+     */
+    public void enableCache(int maxSize, long timeToLive) throws ArgumentFormatException {
+        if (maxSize < 1 || timeToLive < 0) {
+            throw new ArgumentFormatException("Cache size must be positive and time to live cannot be negative");
+        }
+        metadata.setCache(new EntityCache(maxSize, timeToLive));
+    }
+
+    /**
+     * Disable the second-level cache of the POJO class
+     */
+    public void disableCache() {
+        metadata.setCache(null);
+    }
+
+    /**
+     * @return the second-level cache of the POJO class with its statistics, or null if it is
+     * not enabled
+     */
+    public EntityCache getCache() {
+        return metadata.getCache();
+    }
+
+    /**
+     * Enable the process-wide cache of the results of getWithCriterion and getRecordsInOrder on
+     * the table of the POJO class. Results are dropped whenever AdeOrm writes to the table;
+     * writes made without AdeOrm are not seen until the results expire.
+     *
+     * @param maxRows maximum number of rows of all cached results, least recently used results
+     *                are evicted first
+     * @param timeToLive milliseconds a result stays cached, 0 for no expiry
+     */
+    public void enableQueryCache(int maxRows, long timeToLive) throws ArgumentFormatException {
+        if (maxRows < 1 || timeToLive < 0) {
+            throw new ArgumentFormatException("Cache size must be positive and time to live cannot be negative");
+        }
+        QueryCache.enable(metadata.getTableName(), new QueryCache(maxRows, timeToLive));
+    }
+
+    /**
+     * Disable the query cache of the table of the POJO class
+     */
+    public void disableQueryCache() {
+        QueryCache.disable(metadata.getTableName());
+    }
+
+    /**
+     * @return the query cache of the table of the POJO class with its statistics, or null if
+     * it is not enabled
+     */
+    public QueryCache getQueryCache() {
+        return QueryCache.of(metadata.getTableName());
     }
 
     /**
@@ -51,21 +149,19 @@ public class AdeOrm implements Mapper {
     }
 
     /**
-     * Get connection to the db, control the connection
-     * autoCommit status
+     * Get connection to the db. Connections come from the connection pool once it
+     * is initialized, inside a Session the session connection is returned.
      *
      * @return Connection instance
      */
     public Connection getConnection() {
-        conn = ConnectionUtil.getConnection();
-        if (isTransaction) {
-            try {
-                conn.setAutoCommit(false);
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+        try {
+            Session session = Session.current();
+            return session != null ? session.getConnection() : Session.connect();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
         }
-        return conn;
     }
 
     /**
@@ -91,146 +187,269 @@ public class AdeOrm implements Mapper {
     }
 
     /**
-     * Get connection to the db, control the connection
-     * autoCommit status
+     * Set connection to the database from a Connection Pool built with the given settings
      *
-     * @return Connection instance
+     * @param config pool sizes, timeouts and credentials
+     * @return 0 for failure, 1 for success
      */
-    public Connection getConnectionFromPool() {
-        conn = BasicConnectionPoolUtil.getConnection();
-        if (isTransaction) {
-            try {
-                conn.setAutoCommit(false);
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+    public int setConnectionPool(PoolConfig config) {
+        int success = 0;
+        try {
+            success = BasicConnectionPoolUtil.initialize(config);
+        } catch (SQLException | ArgumentFormatException e) {
+            e.printStackTrace();
         }
-        return conn;
+        return success;
     }
 
     /**
-     * Set the transaction status to true
+     * Get connection to the db from the Connection Pool, inside a Session
+     * the session connection is returned
+     *
+     * @return Connection instance
      */
+    public Connection getConnectionFromPool() throws SQLException {
+        Session session = Session.current();
+        return session != null ? session.getConnection() : BasicConnectionPoolUtil.getConnection();
+    }
 
+    /**
+     * Start a transaction in the Session of the current thread, opening one if needed
+     */
     public void begin() throws SQLException {
-        isTransaction = true;
-        completes = new ArrayList<>();
+        Session session = Session.current();
+        if (session == null) {
+            session = Session.open();
+        }
+        session.begin();
     }
 
 
     /**
-     * Commit the transaction
+     * Commit the transaction of the Session of the current thread
      */
-
     public void commit() throws ArgumentFormatException {
-        if (completes.contains(false)) {
-            throw new ArgumentFormatException();
-        } else {
-            try {
-                conn.commit();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+        Session session = Session.current();
+        if (session == null) {
+            throw new ArgumentFormatException("No transaction in progress");
         }
-
+        session.commit();
     }
 
     /**
-     * Roll back the transaction
+     * Roll back the transaction of the Session of the current thread
      */
     public void rollback() {
+        Session session = Session.current();
+        if (session != null) {
+            session.rollback();
+        }
+    }
+
+    /**
+     * Close the Session of the current thread, reset default status
+     */
+    public void close() {
+        Session session = Session.current();
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * Get the connection a statement runs on: the Session connection, or a new one
+     * when the thread has no Session
+     *
+     * @return Connection instance, to be passed to release afterwards
+     */
+    static Connection acquire() throws ArgumentFormatException {
         try {
-            conn.rollback();
+            Session session = Session.current();
+            return session != null ? session.getConnection() : Session.connect();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new ArgumentFormatException("Could not get a connection", e);
         }
     }
 
     /**
-     * Close the connection, reset default status
+     * Close a connection returned by acquire unless it belongs to the Session
+     *
+     * @param conn connection returned by acquire
      */
-    public void close() {
+    static void release(Connection conn) {
+        Session session = Session.current();
+        if (conn == null || (session != null && session.owns(conn))) {
+            return;
+        }
         try {
-            if (conn != null) {
-                conn.close();
-            }
-            isTransaction = false;
+            conn.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    public boolean add(Object pojo) throws ArgumentFormatException, SQLException {
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "insert into " + table.tableName();
-
-        int pkVal = -1;
-
-        for(Field field : clazz.getDeclaredFields()){
-            if(field.isAnnotationPresent(PrimaryKey.class)){
-                Class<?> fieldType = field.getType();
-                if(int.class.isAssignableFrom(fieldType)){
-                    String pkGetter = "get" + field.getName().substring(0,1).toUpperCase(Locale.ROOT) +
-                            field.getName().substring(1);
-
-                    try {
-                        Method getPk = pojo.getClass().getMethod(pkGetter);
-                        pkVal = (Integer) getPk.invoke(pojo);
-
-                    } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                }
+    /**
+     * Get the connection a select statement runs on, marked read-only when the options
+     * ask for it and the connection does not belong to the Session
+     *
+     * @param options result set settings of the query
+     * @return Connection instance, to be passed to release afterwards
+     */
+    static Connection acquire(QueryOptions options) throws ArgumentFormatException {
+        Connection conn = acquire();
+        Session session = Session.current();
+        if (options.isReadOnly() && (session == null || !session.owns(conn))) {
+            try {
+                conn.setReadOnly(true);
+            } catch (SQLException e) {
+                release(conn);
+                throw new ArgumentFormatException("Could not get a connection", e);
             }
         }
+        return conn;
+    }
 
-        List<FieldPair> pojoFieldPairs = MapperUtil.parseFields(pojo);
-        Object[] fieldValues;
-        String[] questionArray;
-        String s;
-
-        if (pkVal == 0) { // pkVal has been changed to 0 and is therefore default
-
-            sql += pojoFieldPairs.stream()
-                    .filter(w -> !w.isPrimaryKey())
-                    .map(FieldPair::getName)
-                    .collect(Collectors.joining(", "," ( "," )"));
-
-
-            fieldValues = pojoFieldPairs.stream().filter(w -> !w.isPrimaryKey()).map(FieldPair::getValue).toArray();
-
-            questionArray = new String[pojoFieldPairs.size() -1 ];
-
-        }else{ // pkVal has been changed to non-zero and therefore sql statement needs to involve it
-
-            fieldValues = pojoFieldPairs.stream().map(FieldPair::getValue).toArray();
-            questionArray = new String[pojoFieldPairs.size()];
-
+    /**
+     * Prepare a select statement with the fetch size, max rows and query timeout of the options
+     *
+     * @param conn connection to prepare the statement on
+     * @param sql select statement
+     * @param options result set settings of the query
+     * @return the prepared statement
+     */
+    static PreparedStatement prepare(Connection conn, String sql, QueryOptions options) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        try {
+            options.apply(ps);
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
         }
+        return ps;
+    }
 
-        sql += " values (";
+    /**
+     * Record that a statement did not affect the expected records, so the
+     * transaction of the Session cannot be committed
+     */
+    private static void markFailed() {
+        Session session = Session.current();
+        if (session != null) {
+            session.markFailed();
+        }
+    }
 
-        Arrays.fill(questionArray, "?");
-        s = Arrays.stream(questionArray).collect(Collectors.joining(", ", "", ");"));
+    /**
+     * Queue the write of a POJO when the thread's Session has a write-behind transaction
+     *
+     * @param kind the statement to run
+     * @param pojo POJO to be written
+     * @return true if the write was queued, false if it is to be run now
+     */
+    private boolean enqueue(UnitOfWork.Kind kind, Object pojo) throws ArgumentFormatException {
+        Session session = Session.current();
+        try {
+            return session != null && clazz != null && clazz.isInstance(pojo) && session.enqueue(this, kind, pojo);
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        }
+    }
 
-        sql += s;
+    public boolean add(Object pojo) throws ArgumentFormatException, SQLException {
+        if (enqueue(UnitOfWork.Kind.INSERT, pojo)) {
+            return true;
+        }
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        SqlTemplateCache.Operation operation = insertOperation(pojo);
+        Object[] fieldValues = templates.getValues(operation, pojo);
 
-        Connection conn = getConnection();
-        try(PreparedStatement ps = conn.prepareStatement(sql)){
+        Connection conn = acquire();
+        try(PreparedStatement ps = prepareInsert(conn, operation)){
             MapperUtil.setPs(ps, fieldValues);
-            //ps.executeUpdate();
-            if (ps.executeUpdate()==1)return true;
-            else {
-                completes.add(false);
+            if (ps.executeUpdate()==1) {
+                if (operation == SqlTemplateCache.Operation.INSERT_WITHOUT_PK) {
+                    setGeneratedKeys(ps, Collections.singletonList(pojo));
+                }
+                return true;
+            } else {
+                markFailed();
                 return false;
             }
         }catch(SQLException e){
             throw new ArgumentFormatException("Arguments format are not correct", e);
         }finally{
-            if(!isTransaction) conn.close();
+            tableWritten(metadata.getTableName());
+            release(conn);
+        }
+    }
+
+
+    /**
+     * Add (create) a record for each POJO of a collection with JDBC batching.
+     * One prepared statement is reused and sent to the database every batchSize rows.
+     * Primary keys assigned by the database are written back into the POJOs.
+     *
+     * @param pojos POJOs to be added
+     * @param batchSize number of rows sent per round trip
+     * @return the update count of each POJO in iteration order, Statement.SUCCESS_NO_INFO
+     *         when the driver does not report it
+     */
+    public int[] addAll(Collection<?> pojos, int batchSize) throws ArgumentFormatException, SQLException {
+        if (pojos == null || batchSize < 1) {
+            throw new ArgumentFormatException();
+        }
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        int[] outcomes = new int[pojos.size()];
+        SqlTemplateCache.Operation current = null;
+        PreparedStatement ps = null;
+        List<Object> batch = new ArrayList<>();
+        int start = 0;
+        int row = 0;
+
+        Connection conn = acquire();
+        try {
+            for (Object pojo : pojos) {
+                SqlTemplateCache.Operation operation = insertOperation(pojo);
+                if (ps != null && (operation != current || row - start == batchSize)) {
+                    executeInsertBatch(ps, current, batch, outcomes, start);
+                    start = row;
+                    if (operation != current) {
+                        ps.close();
+                        ps = null;
+                    }
+                }
+                if (ps == null) {
+                    ps = prepareInsert(conn, operation);
+                    current = operation;
+                }
+                MapperUtil.setPs(ps, templates.getValues(operation, pojo));
+                ps.addBatch();
+                batch.add(pojo);
+                row++;
+            }
+            if (ps != null) {
+                executeInsertBatch(ps, current, batch, outcomes, start);
+            }
+        } catch (SQLException e) {
+            markFailed();
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            if (ps != null) ps.close();
+            tableWritten(metadata.getTableName());
+            release(conn);
         }
+        return outcomes;
     }
 
+    /**
+     * Add (create) a record for each POJO of a collection in batches of 1000 rows
+     *
+     * @param pojos POJOs to be added
+     * @return the update count of each POJO in iteration order
+     */
+    public int[] addAll(Collection<?> pojos) throws ArgumentFormatException, SQLException {
+        return addAll(pojos, DEFAULT_BATCH_SIZE);
+    }
 
     public boolean add(String tableName, List<FieldPair> fieldPairs) throws ArgumentFormatException{
         if (tableName == null || fieldPairs == null){
@@ -251,14 +470,17 @@ public class AdeOrm implements Mapper {
         sql += s;
         Object[] fieldValues = fieldPairs.stream().map(FieldPair::getValue).toArray();
 
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
+        Connection conn = acquire();
+        try(PreparedStatement ps = conn.prepareStatement(sql)){
             MapperUtil.setPs(ps, fieldValues);
 
             ps.executeUpdate();
 
         } catch (SQLException throwables) {
             throw new ArgumentFormatException("Arguments format are not correct", throwables);
+        } finally {
+            tableWritten(tableName);
+            release(conn);
         }
         return true;
     }
@@ -298,8 +520,8 @@ public class AdeOrm implements Mapper {
 
         Object[] fieldValues = fieldPairs.stream().map(FieldPair::getValue).toArray();
 
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
+        Connection conn = acquire();
+        try(PreparedStatement ps = conn.prepareStatement(sql)){
 
             MapperUtil.setPs(ps, fieldValues);
 
@@ -307,11 +529,116 @@ public class AdeOrm implements Mapper {
 
         } catch (SQLException throwables) {
             throw new ArgumentFormatException("Arguments format are not correct", throwables);
+        } finally {
+            tableWritten(tableName);
+            release(conn);
         }
         return true;
     }
 
 
+    /**
+     * Choose the insert statement for a POJO. An int primary key of 0 is the int
+     * default, so it is left out and the database assigns the key.
+     *
+     * @param pojo POJO to be added
+     * @return the insert operation of the SQL template cache
+     */
+    private SqlTemplateCache.Operation insertOperation(Object pojo) {
+        ColumnMetadata pkColumn = metadata.getPrimaryKey();
+        if (pkColumn != null && pkColumn.getType() == int.class && pkColumn.getAccessor().isReadable() &&
+                (Integer) pkColumn.getValue(pojo) == 0) {
+            return SqlTemplateCache.Operation.INSERT_WITHOUT_PK;
+        }
+        return SqlTemplateCache.Operation.INSERT;
+    }
+
+    /**
+     * Prepare an insert statement, asking the driver to return the primary key
+     * when the database assigns it
+     *
+     * @param conn connection to prepare the statement on
+     * @param operation the insert operation of the SQL template cache
+     * @return the prepared statement
+     */
+    private PreparedStatement prepareInsert(Connection conn, SqlTemplateCache.Operation operation) throws SQLException {
+        String sql = metadata.getSqlTemplates().get(operation);
+        if (operation == SqlTemplateCache.Operation.INSERT_WITHOUT_PK) {
+            return conn.prepareStatement(sql, new String[]{metadata.getPrimaryKey().getColumnName()});
+        }
+        return conn.prepareStatement(sql);
+    }
+
+    /**
+     * Write the primary keys generated by the last execution of an insert
+     * statement into the POJOs, in insertion order
+     *
+     * @param ps statement that was executed
+     * @param pojos POJOs inserted by the execution
+     */
+    private void setGeneratedKeys(PreparedStatement ps, List<?> pojos) throws SQLException {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            for (Object pojo : pojos) {
+                if (!keys.next()) {
+                    break;
+                }
+                MapperUtil.setField(pojo, pk, keys, 1);
+            }
+        }
+    }
+
+    /**
+     * Execute the pending batch of an insert statement and write generated primary keys back
+     *
+     * @param ps statement holding the batch
+     * @param operation the insert operation the statement was prepared for
+     * @param batch POJOs in the batch, cleared afterwards
+     * @param outcomes update counts of all rows
+     * @param start position of the first row of the batch in outcomes
+     */
+    private void executeInsertBatch(PreparedStatement ps, SqlTemplateCache.Operation operation, List<Object> batch,
+                                    int[] outcomes, int start) throws SQLException {
+        executeBatch(ps, outcomes, start);
+        if (operation == SqlTemplateCache.Operation.INSERT_WITHOUT_PK) {
+            setGeneratedKeys(ps, batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Execute the pending batch of a statement and copy its update counts
+     *
+     * @param ps statement holding the batch
+     * @param outcomes update counts of all rows
+     * @param start position of the first row of the batch in outcomes
+     */
+    private void executeBatch(PreparedStatement ps, int[] outcomes, int start) throws SQLException {
+        int[] counts = ps.executeBatch();
+        System.arraycopy(counts, 0, outcomes, start, counts.length);
+        for (int count : counts) {
+            if (count == 0) {
+                markFailed();
+            }
+        }
+    }
+
+    /**
+     * Sum the update counts of a batch, counts the driver did not report are skipped
+     *
+     * @param outcomes update counts of a batch
+     * @return number of records affected
+     */
+    private static int affected(int[] outcomes) {
+        int affected = 0;
+        for (int outcome : outcomes) {
+            if (outcome > 0) {
+                affected += outcome;
+            }
+        }
+        return affected;
+    }
+
     /**
      * Update a generic type column value of a record by a primary key of any type
      *
@@ -325,23 +652,23 @@ public class AdeOrm implements Mapper {
         if (columnName == null || id == null || idValue == null) {
             return false;
         }
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String tableName = table.tableName();;
+        String tableName = metadata.getTableName();
         String sql = "update " + tableName + " set " + columnName + "= ? " + " where " + id + "=?";
 
-        Connection conn = getConnection();
+        Connection conn = acquire();
         try(PreparedStatement ps = conn.prepareStatement(sql)){
             MapperUtil.setPs(ps, newColumnValue, idValue);
             int psVal = ps.executeUpdate();
             if (psVal==1)return true;
             else {
-                completes.add(false);
+                markFailed();
                 return false;
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
         } finally {
-            if (!isTransaction) conn.close();
+            rowsWritten(id, idValue);
+            release(conn);
         }
     }
 
@@ -357,8 +684,7 @@ public class AdeOrm implements Mapper {
         if (fieldPairs == null || pk == null) {
             return false;
         }
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String tableName = table.tableName();;
+        String tableName = metadata.getTableName();
 
         String sql = "update " + tableName + " set ";
 
@@ -372,19 +698,20 @@ public class AdeOrm implements Mapper {
             System.out.println(fieldValues[i]);
         }
 
-        Connection conn = getConnection();
+        Connection conn = acquire();
         try(PreparedStatement ps = conn.prepareStatement(sql)){
             MapperUtil.setPs(ps, fieldValues);
             int psVal = ps.executeUpdate();
             if (psVal==1)return true;
             else {
-                completes.add(false);
+                markFailed();
                 return false;
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
         } finally {
-            if (!isTransaction) conn.close();
+            rowsWritten(pk.getName(), pk.getValue());
+            release(conn);
         }
     }
 
@@ -397,53 +724,89 @@ public class AdeOrm implements Mapper {
     public boolean update(Object object) throws ArgumentFormatException, SQLException {
         if (object==null) return false;
 
-        Object theRecord;
-
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        List<FieldPair> fieldPairList = MapperUtil.parseFields(object);
-        String tableName = table.tableName();
-        String sql = "update " + tableName + " set ";
-        String columnName;
-        Object[] columnValues = new Object[fieldPairList.size()];
-        String id = "";
-        Object pk = null;
-        int j=0;
-
-        for (int i=0; i< fieldPairList.size(); i++) {
-
-            if (!fieldPairList.get(i).isPrimaryKey()) {
-                columnName = fieldPairList.get(i).getName();
-                columnValues[j] = fieldPairList.get(i).getValue();
-                sql += columnName + " = ? " + ", ";
-                j++;
-            } else {
-                id = fieldPairList.get(i).getName();
-                pk = fieldPairList.get(i).getValue();
-            }
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        String sql = templates.get(SqlTemplateCache.Operation.UPDATE_BY_PK);
+        if (sql == null) {
+            throw new ArgumentFormatException("The class has no field marked with @PrimaryKey");
+        }
+        if (enqueue(UnitOfWork.Kind.UPDATE, object)) {
+            return true;
+        }
+        BitSet changed = changedColumns(object);
+        if (changed != null && changed.isEmpty()) {
+            return true;
+        }
+        if (changed != null) {
+            sql = templates.updateColumns(changed);
         }
-        columnValues[columnValues.length-1] = pk;
-//        theRecord = get(id, pk);
-        sql = sql.substring(0, sql.length()-2);
-        sql += " where " + id + " = ?";
+        Object[] columnValues = updateValues(object, changed);
 
-        Connection conn = ConnectionUtil.getConnection();
+        Connection conn = acquire();
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             MapperUtil.setPs(ps, columnValues);;
             int psVal = ps.executeUpdate();
+            entityWritten(object, psVal == 1);
             if (psVal==1)return true;
             else {
-                completes.add(false);
+                markFailed();
                 return false;
             }
         } catch (SQLException throwables) {
             throwables.printStackTrace();
         } finally {
-            if (!isTransaction) conn.close();
+            release(conn);
         }
         return false;
     }
 
 
+    /**
+     * Compare a record read in this Session with the column values it was read with
+     *
+     * @param object record to be updated
+     * @return indexes of the columns changed since, empty if none, or null if every column
+     * is to be written because the record is not mapped or its primary key changed
+     */
+    private BitSet changedColumns(Object object) {
+        Session session = Session.current();
+        Object[] snapshot = session != null && clazz.isInstance(object) ? session.getSnapshot(object) : null;
+        if (snapshot == null) {
+            return null;
+        }
+        Object[] values = dehydrate(clazz.cast(object));
+        int pkIndex = metadata.getColumns().indexOf(metadata.getPrimaryKey());
+        if (!Objects.deepEquals(values[pkIndex], snapshot[pkIndex])) {
+            return null;
+        }
+        BitSet changed = new BitSet(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (i != pkIndex && !Objects.deepEquals(values[i], snapshot[i])) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param object record to be updated
+     * @param changed columns to be set, null for every column
+     * @return parameters of the update statement, the column values then the primary key
+     */
+    private Object[] updateValues(Object object, BitSet changed) {
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        if (changed == null) {
+            return templates.getValues(SqlTemplateCache.Operation.UPDATE_BY_PK, object);
+        }
+        Object[] values = dehydrate(clazz.cast(object));
+        Object[] columnValues = new Object[changed.cardinality() + 1];
+        int n = 0;
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            columnValues[n++] = values[i];
+        }
+        columnValues[n] = values[metadata.getColumns().indexOf(metadata.getPrimaryKey())];
+        return columnValues;
+    }
+
     /**
      * delete a generic type column value of a record by a primary key of any type
      *
@@ -455,25 +818,25 @@ public class AdeOrm implements Mapper {
         if (id == null || idValue == null) {
             return false;
         }
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String tableName = table.tableName();;
+        String tableName = metadata.getTableName();
 
         String sql = "delete from " + tableName + " where " + id + "=?";
 
-        Connection conn = getConnection();
+        Connection conn = acquire();
         try(PreparedStatement ps = conn.prepareStatement(sql)){
             MapperUtil.setPs(ps, idValue);
             int psVal = ps.executeUpdate();
             System.out.println(psVal);
             if (psVal==1)return true;
             else {
-                completes.add(false);
+                markFailed();
                 return false;
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
         }  finally {
-            if (!isTransaction) conn.close();
+            rowsWritten(id, idValue);
+            release(conn);
         }
     }
 
@@ -481,24 +844,18 @@ public class AdeOrm implements Mapper {
     public boolean delete(Object object) throws ArgumentFormatException, SQLException {
         if (object == null) return false;
 
-        String id = "";
-        Object pk = null;
-        Object theRecord;
-
-        List<FieldPair> fieldPairList = MapperUtil.parseFields(object);
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String tableName = table.tableName();;
-
-        String sql = "delete from " + tableName;
-
-        for (int i = 0; i< fieldPairList.size(); i++) {
-            if (fieldPairList.get(i).isPrimaryKey()) {
-                id = fieldPairList.get(i).getName();
-                pk = fieldPairList.get(i).getValue();
-                sql += " where " + id + " = ?";
-            }
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        String sql = templates.get(SqlTemplateCache.Operation.DELETE_BY_PK);
+        if (sql == null) {
+            throw new ArgumentFormatException("The class has no field marked with @PrimaryKey");
+        }
+        Object[] pk = templates.getValues(SqlTemplateCache.Operation.DELETE_BY_PK, object);
+        if (enqueue(UnitOfWork.Kind.DELETE, object)) {
+            entityWritten(object, false);
+            return true;
         }
-        Connection conn = ConnectionUtil.getConnection();
+
+        Connection conn = acquire();
         try(PreparedStatement ps = conn.prepareStatement(sql)){
             MapperUtil.setPs(ps, pk);
             int psVal = ps.executeUpdate();
@@ -507,54 +864,481 @@ public class AdeOrm implements Mapper {
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
         } finally {
-            if (!isTransaction) conn.close();
+            entityWritten(object, false);
+            release(conn);
         }
     }
 
 
     /**
-     * Get a record of a table by a column with unique value
+     * Run writes queued by a write-behind Session, consecutive writes with the same
+     * statement are sent as one batch
      *
-     * @param uniCol column name with unique constraint
-     * @param colValue column value of a record to be retrieve
-     * @return an object of the default pojo class for the record
+     * @param conn connection of the Session
+     * @param kind the statement of the writes
+     * @param pojos POJOs of this class, in the order their statements are to run
      */
-    @Override
-    public Object get(String uniCol, Object colValue) throws ArgumentFormatException {
-        if (uniCol == null || colValue == null) {
-            return null;
-        }
-        if (!MapperUtil.isUnique(clazz, uniCol)) {
-            throw new ArgumentFormatException("The method only accepts using primary key to query");
-        }
-
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "select * from " + table.tableName() + " where " + uniCol + "=?";
-        Object object = null;
+    void flush(Connection conn, UnitOfWork.Kind kind, List<Object> pojos) throws SQLException {
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        SqlTemplateCache.Operation operation = null;
+        String current = null;
+        PreparedStatement ps = null;
+        List<Object> batch = new ArrayList<>();
         try {
-            Constructor<?> constructor = clazz.getConstructor();
-            object = constructor.newInstance();
-
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            throw new ArgumentFormatException("Arguments format are not correct", e);
-        }
-        Field[] fields = clazz.getDeclaredFields();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
-            MapperUtil.setPs(ps, colValue);
+            for (Object pojo : pojos) {
+                SqlTemplateCache.Operation next = null;
+                String sql;
+                Object[] values;
+                if (kind == UnitOfWork.Kind.INSERT) {
+                    next = insertOperation(pojo);
+                    sql = templates.get(next);
+                    values = templates.getValues(next, pojo);
+                } else if (kind == UnitOfWork.Kind.UPDATE) {
+                    BitSet changed = changedColumns(pojo);
+                    if (changed != null && changed.isEmpty()) {
+                        continue;
+                    }
+                    sql = changed == null ? templates.get(SqlTemplateCache.Operation.UPDATE_BY_PK) :
+                            templates.updateColumns(changed);
+                    values = updateValues(pojo, changed);
+                } else {
+                    sql = templates.get(SqlTemplateCache.Operation.DELETE_BY_PK);
+                    values = templates.getValues(SqlTemplateCache.Operation.DELETE_BY_PK, pojo);
+                }
+                if (ps != null && !sql.equals(current)) {
+                    flushBatch(ps, kind, operation, batch);
+                    ps.close();
+                    ps = null;
+                }
+                if (ps == null) {
+                    ps = next != null ? prepareInsert(conn, next) : conn.prepareStatement(sql);
+                    operation = next;
+                    current = sql;
+                }
+                MapperUtil.setPs(ps, values);
+                ps.addBatch();
+                batch.add(pojo);
+            }
+            if (ps != null) {
+                flushBatch(ps, kind, operation, batch);
+            }
+        } catch (SQLException e) {
+            markFailed();
+            if (kind != UnitOfWork.Kind.INSERT) {
+                rowsWritten(null, null);
+            }
+            throw e;
+        } finally {
+            if (ps != null) ps.close();
+        }
+    }
+
+    /**
+     * Execute the pending batch of a flush and keep the caches and identity map in step
+     *
+     * @param ps statement holding the batch
+     * @param kind the statement of the writes
+     * @param operation the insert operation the statement was prepared for, null for others
+     * @param batch POJOs in the batch, cleared afterwards
+     */
+    private void flushBatch(PreparedStatement ps, UnitOfWork.Kind kind, SqlTemplateCache.Operation operation,
+                            List<Object> batch) throws SQLException {
+        int[] outcomes = new int[batch.size()];
+        executeBatch(ps, outcomes, 0);
+        if (kind == UnitOfWork.Kind.INSERT) {
+            if (operation == SqlTemplateCache.Operation.INSERT_WITHOUT_PK) {
+                setGeneratedKeys(ps, batch);
+            }
+            tableWritten(metadata.getTableName());
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                entityWritten(batch.get(i), kind == UnitOfWork.Kind.UPDATE && outcomes[i] > 0);
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Update the records of a collection of POJOs by their primary keys with JDBC batching
+     *
+     * @param pojos records to be updated
+     * @param batchSize number of rows sent per round trip
+     * @return number of records updated
+     */
+    public int updateAll(Collection<?> pojos, int batchSize) throws ArgumentFormatException, SQLException {
+        if (pojos == null || batchSize < 1) {
+            throw new ArgumentFormatException();
+        }
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        String sql = templates.get(SqlTemplateCache.Operation.UPDATE_BY_PK);
+        if (sql == null) {
+            throw new ArgumentFormatException("The class has no field marked with @PrimaryKey");
+        }
+        int[] outcomes = new int[pojos.size()];
+        int start = 0;
+        int row = 0;
+
+        Connection conn = acquire();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Object pojo : pojos) {
+                MapperUtil.setPs(ps, templates.getValues(SqlTemplateCache.Operation.UPDATE_BY_PK, pojo));
+                ps.addBatch();
+                if (++row - start == batchSize) {
+                    executeBatch(ps, outcomes, start);
+                    start = row;
+                }
+            }
+            if (row > start) {
+                executeBatch(ps, outcomes, start);
+            }
+            // a row whose update count is 0 was not found, the POJO no longer matches a record
+            int i = 0;
+            for (Object pojo : pojos) {
+                entityWritten(pojo, outcomes[i++] > 0);
+            }
+        } catch (SQLException e) {
+            rowsWritten(null, null);
+            markFailed();
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
+        }
+        return affected(outcomes);
+    }
+
+    /**
+     * Update the records of a collection of POJOs in batches of 1000 rows
+     *
+     * @param pojos records to be updated
+     * @return number of records updated
+     */
+    public int updateAll(Collection<?> pojos) throws ArgumentFormatException, SQLException {
+        return updateAll(pojos, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Delete the records of a collection of POJOs by their primary keys
+     *
+     * @param pojos records to be deleted
+     * @return number of records deleted
+     */
+    public int deleteAll(Collection<?> pojos) throws ArgumentFormatException, SQLException {
+        if (pojos == null) {
+            throw new ArgumentFormatException();
+        }
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null) {
+            throw new ArgumentFormatException("The class has no field marked with @PrimaryKey");
+        }
+        List<Object> ids = new ArrayList<>(pojos.size());
+        for (Object pojo : pojos) {
+            ids.add(pk.getValue(pojo));
+        }
+        return deleteByIds(ids);
+    }
+
+    /**
+     * Delete records by primary key values. Keys are sent as "in (...)" lists of up
+     * to 500 values, so a large collection takes a few round trips instead of one per key.
+     *
+     * @param ids primary key values of the records to be deleted
+     * @return number of records deleted
+     */
+    public int deleteByIds(Collection<?> ids) throws ArgumentFormatException, SQLException {
+        if (ids == null) {
+            throw new ArgumentFormatException();
+        }
+        SqlTemplateCache templates = metadata.getSqlTemplates();
+        if (metadata.getPrimaryKey() == null) {
+            throw new ArgumentFormatException("The class has no field marked with @PrimaryKey");
+        }
+        List<Object> idList = new ArrayList<>(ids);
+        int deleted = 0;
+
+        Connection conn = acquire();
+        try {
+            for (int start = 0; start < idList.size(); start += IN_LIST_SIZE) {
+                List<Object> chunk = idList.subList(start, Math.min(start + IN_LIST_SIZE, idList.size()));
+                try (PreparedStatement ps = conn.prepareStatement(templates.deleteByPkIn(chunk.size()))) {
+                    MapperUtil.setPs(ps, chunk.toArray());
+                    deleted += ps.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            markFailed();
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            rowsWritten(idList);
+            release(conn);
+        }
+        if (deleted < idList.size()) {
+            markFailed();
+        }
+        return deleted;
+    }
+
+    /**
+     * Get a record of a table by a column with unique value
+     *
+     * @param uniCol column name with unique constraint
+     * @param colValue column value of a record to be retrieve
+     * @return an object of the default pojo class for the record, with default field values
+     * if there is no such record
+     */
+    @Override
+    public T get(String uniCol, Object colValue) throws ArgumentFormatException {
+        if (uniCol == null || colValue == null) {
+            return null;
+        }
+        T object = find(uniCol, colValue).orElse(null);
+        return object != null ? object : newInstance();
+    }
+
+    /**
+     * Find a record of a table by a column with unique value
+     *
+     * @param uniCol column name with unique constraint
+     * @param colValue column value of a record to be retrieve
+     * @return the record, or an empty Optional if there is none
+     */
+    public Optional<T> find(String uniCol, Object colValue) throws ArgumentFormatException {
+        if (uniCol == null || colValue == null) {
+            return Optional.empty();
+        }
+        if (!metadata.isUnique(uniCol)) {
+            throw new ArgumentFormatException("The method only accepts using primary key to query");
+        }
+
+        Session session = Session.current();
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        boolean byPk = pk != null && pk.getColumnName().equals(uniCol);
+        if (session != null && byPk) {
+            Object mapped = session.lookup(clazz, identityKey(colValue));
+            if (mapped != null) {
+                return Optional.of(clazz.cast(mapped));
+            }
+        }
+        // the cache only holds committed records, a transaction reads its own writes
+        EntityCache cache = session != null && session.isTransaction() ? null : metadata.getCache();
+        if (cache != null && byPk) {
+            Object[] values = cache.get(identityKey(colValue));
+            if (values != null) {
+                return Optional.of(identify(hydrate(values)));
+            }
+        }
+        long stamp = cache != null ? cache.stamp() : 0;
+
+        String sql = metadata.getSqlTemplates().selectBy(uniCol);
+        T object = null;
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
+            MapperUtil.setPs(ps, colValue);
             ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                for (int i = 0; i < fields.length; i++) {
-                    ColumnName c = fields[i].getDeclaredAnnotation(ColumnName.class);
-                    MapperUtil.setField(object, fields[i], rs.getString(c.columnName()));
+            ResultSetPlan plan = metadata.getPlan(sql, rs);
+            if (rs.next()) {
+                object = newInstance();
+                plan.populate(object, rs);
+                if (cache != null && pk != null) {
+                    cache.put(pk.getValue(object), dehydrate(object), stamp);
                 }
+                object = identify(object);
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
+        }
+        return Optional.ofNullable(object);
+    }
+
+    /**
+     * Map a record read on the thread's Session into its identity map
+     *
+     * @param object the record read
+     * @return the instance the Session already holds for the record, or object itself
+     */
+    private T identify(T object) {
+        Session session = Session.current();
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (session == null || pk == null) {
+            return object;
+        }
+        Object id = pk.getValue(object);
+        Object mapped = session.register(clazz, id, object);
+        if (mapped == object && id != null) {
+            session.snapshot(object, dehydrate(object));
+        }
+        return clazz.cast(mapped);
+    }
+
+    /**
+     * @param pkValue a primary key value as given by the caller
+     * @return the value as the type of the primary key field, the key of the identity map
+     */
+    private Object identityKey(Object pkValue) {
+        Class<?> type = metadata.getPrimaryKey().getType();
+        if (pkValue == null || Condition.boxed(type).isInstance(pkValue)) {
+            return pkValue;
+        }
+        return MapperUtil.convert(String.valueOf(pkValue), type);
+    }
+
+    /**
+     * Keep the caches and the identity map of the thread's Session in step with a record
+     * written from a POJO, called once the statement has run
+     *
+     * @param pojo the POJO written
+     * @param stored true if the record now holds the POJO values, false if the write failed
+     */
+    private void entityWritten(Object pojo, boolean stored) {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null || !clazz.isInstance(pojo)) {
+            return;
+        }
+        invalidate(pk.getValue(pojo));
+        Session session = Session.current();
+        if (session == null) {
+            return;
+        }
+        if (stored) {
+            session.replace(clazz, pk.getValue(pojo), pojo);
+            session.snapshot(pojo, dehydrate(clazz.cast(pojo)));
+        } else {
+            session.evict(clazz, pk.getValue(pojo));
+        }
+    }
+
+    /**
+     * Drop the records changed by a statement from the caches and the identity map of the
+     * thread's Session, once the statement has run so a concurrent read cannot cache the
+     * values it replaced
+     *
+     * @param column column the statement filtered on
+     * @param value value of the column, every record of the class is dropped unless the
+     *              column is the primary key
+     */
+    private void rowsWritten(String column, Object value) {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        boolean byPk = pk != null && pk.getColumnName().equals(column) && value != null;
+        Object id = byPk ? identityKey(value) : null;
+        invalidate(id);
+        Session session = Session.current();
+        if (session != null) {
+            session.evict(clazz, id);
+        }
+    }
+
+    /**
+     * Drop the records deleted by primary key from the caches and the identity map of the
+     * thread's Session, with one invalidation of the table for all of them
+     *
+     * @param ids primary key values as given by the caller
+     */
+    private void rowsWritten(List<Object> ids) {
+        List<Object> keys = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            Object key = id == null ? null : identityKey(id);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        tableWritten(metadata.getTableName());
+        Session session = Session.current();
+        EntityCache cache = metadata.getCache();
+        if (cache != null) {
+            cache.removeAll(keys);
+            if (session != null && session.isTransaction()) {
+                session.afterCompletion(() -> cache.removeAll(keys));
+            }
+        }
+        if (session != null) {
+            for (Object key : keys) {
+                session.evict(clazz, key);
+            }
+        }
+    }
+
+    /**
+     * Drop records from the second-level cache, and again when the transaction of the
+     * thread's Session ends, as a concurrent read may cache the values it replaces until then
+     *
+     * @param id primary key value, null to drop every record of the class
+     */
+    private void invalidate(Object id) {
+        tableWritten(metadata.getTableName());
+        EntityCache cache = metadata.getCache();
+        if (cache == null) {
+            return;
+        }
+        cache.remove(id);
+        Session session = Session.current();
+        if (session != null && session.isTransaction()) {
+            session.afterCompletion(() -> cache.remove(id));
+        }
+    }
+
+    /**
+     * @return the query cache of the table, or null if it is not enabled or the thread's
+     * Session has a transaction, which must read its own writes
+     */
+    private QueryCache queryCache() {
+        Session session = Session.current();
+        return session != null && session.isTransaction() ? null : QueryCache.of(metadata.getTableName());
+    }
+
+    /**
+     * Drop the cached query results of a table once a write to it has run, and again when
+     * the transaction of the thread's Session ends
+     *
+     * @param tableName name of the table written
+     */
+    private static void tableWritten(String tableName) {
+        QueryCache cache = QueryCache.of(tableName);
+        if (cache == null) {
+            return;
+        }
+        cache.invalidate();
+        Session session = Session.current();
+        if (session != null && session.isTransaction()) {
+            session.afterCompletion(cache::invalidate);
+        }
+    }
+
+    /**
+     * @return the column values of a record, in the order of the entity columns, with the
+     * mutable values copied so changing the record in place leaves them as they were read
+     */
+    private Object[] dehydrate(T object) {
+        List<ColumnMetadata> columns = metadata.getColumns();
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = MapperUtil.copyOf(columns.get(i).getValue(object));
+        }
+        return values;
+    }
+
+    /**
+     * @return a new record with the column values of dehydrate, mutable values copied so
+     * the record does not share them with a cache
+     */
+    private T hydrate(Object[] values) throws ArgumentFormatException {
+        T object = newInstance();
+        List<ColumnMetadata> columns = metadata.getColumns();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                columns.get(i).setValue(object, MapperUtil.copyOf(values[i]));
+            }
         }
         return object;
     }
 
+    /**
+     * @return a new instance of the default pojo class
+     */
+    private T newInstance() throws ArgumentFormatException {
+        return clazz.cast(metadata.newInstance());
+    }
+
 
     /**
      * Get values of a record by  a column with unique value
@@ -567,19 +1351,16 @@ public class AdeOrm implements Mapper {
         if (columnNames == null || uniCol == null || colValue == null) {
             return null;
         }
-        if (!MapperUtil.isUnique(clazz, uniCol)) {
+        if (!metadata.isUnique(uniCol)) {
             throw new ArgumentFormatException("The method only accepts using primary key or column with unique value" +
                     "to query");
         }
 
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-
         String s = Arrays.stream(columnNames).collect(Collectors.joining(", ","",""));
-        String sql = "select " + s + " from " + table.tableName() + " where " + uniCol + "=?";
+        String sql = "select " + s + " from " + metadata.getTableName() + " where " + uniCol + "=?";
         List<Object> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
-            Class<?> clazz = PreparedStatement.class;
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             MapperUtil.setPs(ps, colValue);
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
@@ -589,6 +1370,8 @@ public class AdeOrm implements Mapper {
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
         }
         return result;
     }
@@ -615,15 +1398,26 @@ public class AdeOrm implements Mapper {
             throw new ArgumentFormatException("Order must be in \"asc\" or \"desc\"");
         }
 
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
         String colNames = String.join(", ", columnNames);
 
-        String sql = "select " + colNames + " from " + table.tableName() + " where " + fieldName + "=?" +
+        String sql = "select " + colNames + " from " + metadata.getTableName() + " where " + fieldName + "=?" +
                         " order by " + orderCol + " " + order;
 
         List<List<Object>> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
+        QueryCache cache = queryCache();
+        QueryCache.Key key = cache == null ? null : QueryCache.key(sql, options.getMaxRows(), fieldValue);
+        List<Object[]> rows = cache == null ? null : cache.get(key);
+        if (rows != null) {
+            for (Object[] row : rows) {
+                result.add(new ArrayList<>(Arrays.asList(row)));
+            }
+            return result;
+        }
+        long generation = cache != null ? cache.generation() : 0;
+        rows = new ArrayList<>();
+
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             MapperUtil.setPs(ps, fieldValue);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
@@ -632,9 +1426,15 @@ public class AdeOrm implements Mapper {
                     record.add(rs.getString(columnNames.get(i)));
                 }
                 result.add(record);
+                rows.add(record.toArray());
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
+        }
+        if (cache != null) {
+            cache.put(key, rows, generation);
         }
         return result;
     }
@@ -645,32 +1445,127 @@ public class AdeOrm implements Mapper {
      *
      * @return all records of the table
      */
-    public List<Object> getAll() throws ArgumentFormatException {
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "select * from " + table.tableName();
-        Object object = null;
-        Constructor<?> constructor;
-        Field[] fields = clazz.getDeclaredFields();
+    public List<T> getAll() throws ArgumentFormatException {
+        String sql = metadata.getSqlTemplates().get(SqlTemplateCache.Operation.SELECT_ALL);
 
-        List<Object> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
-            constructor = clazz.getConstructor();
+        List<T> result = new ArrayList<>();
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             ResultSet rs = ps.executeQuery();
+            ResultSetPlan plan = metadata.getPlan(sql, rs);
             while (rs.next()) {
-                object = constructor.newInstance();
-                for (int i = 0; i < fields.length; i++) {
-                    ColumnName c = fields[i].getDeclaredAnnotation(ColumnName.class);
-                    MapperUtil.setField(object, fields[i], rs.getString(c.columnName()));
-                }
-                result.add(object);
+                T object = newInstance();
+                plan.populate(object, rs);
+                result.add(identify(object));
+            }
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("Argument formats are not correct", e);
+        } finally {
+            release(conn);
+        }
+        return result;
+    }
+
+
+    /**
+     * Start a query on the table, e.g.
+     * select().where(Condition.eq("city", "Miami")).orderBy("rating", "desc").limit(10).list()
+     *
+     * @return a query selecting every record until conditions are added
+     */
+    public Query<T> select() {
+        return new Query<>(this, clazz, metadata, options);
+    }
+
+    /**
+     * Stream all records of the table, read lazily through a server-side cursor.
+     * The stream must be closed, e.g. with try-with-resources, unless it is read to the end.
+     *
+     * @return the records of the table
+     */
+    public Stream<T> stream() throws ArgumentFormatException {
+        return select().stream();
+    }
+
+    /**
+     * Get one page of records in primary key order with keyset pagination
+     *
+     * @param size maximum number of records of the page
+     * @param token continuation token of the previous page, null for the first page
+     * @return the page and the token of the next one
+     */
+    public Page<T> page(int size, String token) throws ArgumentFormatException {
+        return select().page(size, token);
+    }
+
+    /**
+     * Get one page of records in the order of a not null column with keyset pagination,
+     * ties are ordered by primary key
+     *
+     * @param orderCol the column to order by
+     * @param order "asc" for ascending, "desc" for descending
+     * @param size maximum number of records of the page
+     * @param token continuation token of the previous page, null for the first page
+     * @return the page and the token of the next one
+     */
+    public Page<T> page(String orderCol, String order, int size, String token) throws ArgumentFormatException {
+        return select().orderBy(orderCol, order).page(size, token);
+    }
+
+    /**
+     * Run a select statement returning records of the table
+     *
+     * @param sql parameterized select statement
+     * @param parameters values bound to the statement
+     * @param options result set settings of the query
+     * @return the records
+     */
+    List<T> executeQuery(String sql, Object[] parameters, QueryOptions options) throws ArgumentFormatException {
+        List<T> result = new ArrayList<>();
+        Connection conn = acquire(options);
+        try (PreparedStatement ps = prepare(conn, sql, options)) {
+            MapperUtil.setPs(ps, parameters);
+            ResultSet rs = ps.executeQuery();
+            ResultSetPlan plan = metadata.getPlan(sql, rs);
+            while (rs.next()) {
+                T object = newInstance();
+                plan.populate(object, rs);
+                result.add(identify(object));
             }
-        } catch (SQLException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+        } catch (SQLException e) {
             throw new ArgumentFormatException("Argument formats are not correct", e);
+        } finally {
+            release(conn);
         }
         return result;
     }
 
+    /**
+     * Run a select statement returning one column
+     *
+     * @param sql parameterized select statement of one column
+     * @param parameters values bound to the statement
+     * @param options result set settings of the query
+     * @param reader typed reader of the column
+     * @return the column values, null for SQL NULL
+     */
+    List<Object> executeColumn(String sql, Object[] parameters, QueryOptions options, ColumnReader reader)
+            throws ArgumentFormatException {
+        List<Object> result = new ArrayList<>();
+        Connection conn = acquire(options);
+        try (PreparedStatement ps = prepare(conn, sql, options)) {
+            MapperUtil.setPs(ps, parameters);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                result.add(reader.read(rs, 1));
+            }
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("Argument formats are not correct", e);
+        } finally {
+            release(conn);
+        }
+        return result;
+    }
 
     /**
      * Get generic type columns' values of all records in a table in order
@@ -679,7 +1574,7 @@ public class AdeOrm implements Mapper {
      * @param order "asc" for ascending, "desc" for descending
      * @return all records in specified order
      */
-    public List<Object> getAllInOrder(String orderCol, String order) throws ArgumentFormatException {
+    public List<T> getAllInOrder(String orderCol, String order) throws ArgumentFormatException {
         if (orderCol == null || order == null) {
             return null;
         }
@@ -687,26 +1582,21 @@ public class AdeOrm implements Mapper {
             throw new ArgumentFormatException("Order must be in \"asc\" or \"desc\"");
         }
 
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "select * from " + table.tableName() + " order by " + orderCol + " " + order;
-        Object object = null;
-        Constructor<?> constructor;
-        Field[] fields = clazz.getDeclaredFields();
-        List<Object> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
-            constructor = clazz.getConstructor();
+        String sql = "select * from " + metadata.getTableName() + " order by " + orderCol + " " + order;
+        List<T> result = new ArrayList<>();
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             ResultSet rs = ps.executeQuery();
+            ResultSetPlan plan = metadata.getPlan(sql, rs);
             while (rs.next()) {
-                object = constructor.newInstance();
-                for (int i = 0; i < fields.length; i++) {
-                    ColumnName c = fields[i].getDeclaredAnnotation(ColumnName.class);
-                    MapperUtil.setField(object, fields[i], rs.getString(c.columnName()));
-                }
-                result.add(object);
+                T object = newInstance();
+                plan.populate(object, rs);
+                result.add(identify(object));
             }
-        } catch (SQLException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+        } catch (SQLException e) {
             throw new ArgumentFormatException("Argument formats are not correct", e);
+        } finally {
+            release(conn);
         }
         return result;
     }
@@ -720,12 +1610,11 @@ public class AdeOrm implements Mapper {
      * @param criterion "and" or "or" to specific relationship between field
      * @return a list of field values of records fulfill the criterion
      */
-    public List<Object> getWithCriterion(List<FieldPair> fieldPairs, String criterion) throws ArgumentFormatException {
+    public List<T> getWithCriterion(List<FieldPair> fieldPairs, String criterion) throws ArgumentFormatException {
         if (fieldPairs == null || criterion == null) {
             return null;
         }
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "select * from " + table.tableName() + " where ";
+        String sql = "select * from " + metadata.getTableName() + " where ";
 
         if (criterion.equals("and")) {
             sql += fieldPairs.stream().map(FieldPair::getName).collect(Collectors.joining("=? and ")) + "=?";
@@ -741,26 +1630,40 @@ public class AdeOrm implements Mapper {
 
         Object[] fieldValues = fieldPairs.stream().map(FieldPair::getValue).toArray();
 
-        Object object = null;
-        Constructor<?> constructor;
-        Field[] fields = clazz.getDeclaredFields();
 
-        List<Object> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
+        List<T> result = new ArrayList<>();
+        QueryCache cache = queryCache();
+        QueryCache.Key key = cache == null ? null : QueryCache.key(sql, options.getMaxRows(), fieldValues);
+        List<Object[]> rows = cache == null ? null : cache.get(key);
+        if (rows != null) {
+            for (Object[] row : rows) {
+                result.add(identify(hydrate(row)));
+            }
+            return result;
+        }
+        long generation = cache != null ? cache.generation() : 0;
+        rows = new ArrayList<>();
+
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             MapperUtil.setPs(ps, fieldValues);
-            constructor = clazz.getConstructor();
             ResultSet rs = ps.executeQuery();
+            ResultSetPlan plan = metadata.getPlan(sql, rs);
             while (rs.next()) {
-                object = constructor.newInstance();
-                for (int i = 0; i < fields.length; i++) {
-                    ColumnName c = fields[i].getDeclaredAnnotation(ColumnName.class);
-                    MapperUtil.setField(object, fields[i], rs.getString(c.columnName()));
+                T object = newInstance();
+                plan.populate(object, rs);
+                if (cache != null) {
+                    rows.add(dehydrate(object));
                 }
-                result.add(object);
+                result.add(identify(object));
             }
-        } catch (SQLException | NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+        } catch (SQLException e) {
             throw new ArgumentFormatException("Argument formats are not correct", e);
+        } finally {
+            release(conn);
+        }
+        if (cache != null) {
+            cache.put(key, rows, generation);
         }
         return result;
     }
@@ -783,14 +1686,13 @@ public class AdeOrm implements Mapper {
             return null;
         }
 
-        TableName tableA = clazz.getDeclaredAnnotation(TableName.class);
 
         String colNames = String.join(", ", columnNames);
-        String sql = "select " + colNames + " from " + tableA.tableName() + " " + jType + " join " + tableB +
+        String sql = "select " + colNames + " from " + metadata.getTableName() + " " + jType + " join " + tableB +
                 " on " + pkA + " = " + fkA;
         List<List<Object>> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
                 List<Object> record = new ArrayList<>();
@@ -801,6 +1703,8 @@ public class AdeOrm implements Mapper {
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
         }
         return result;
     }
@@ -825,13 +1729,12 @@ public class AdeOrm implements Mapper {
             return null;
         }
 
-        TableName tableA = clazz.getDeclaredAnnotation(TableName.class);
         String colNames = String.join(", ", columnNames);
-        String sql = "select " + colNames + " from " + tableA.tableName() + " " + jType + " join " + tableB +
+        String sql = "select " + colNames + " from " + metadata.getTableName() + " " + jType + " join " + tableB +
                 " on " + pkA + " = " + fkA + " where " + fieldName + "=?";
         List<List<Object>> result = new ArrayList<>();
-        try(Connection conn = getConnection();
-            PreparedStatement ps = conn.prepareStatement(sql)){
+        Connection conn = acquire(options);
+        try(PreparedStatement ps = prepare(conn, sql, options)){
             MapperUtil.setPs(ps, fieldValue);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
@@ -843,6 +1746,133 @@ public class AdeOrm implements Mapper {
             }
         } catch (SQLException e) {
             throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
+        }
+        return result;
+    }
+
+
+    /**
+     * Get selected columns of a record by a column with unique value as a DTO
+     *
+     * @param dtoType DTO class, see {@link ProjectionPlan} for how columns are bound
+     * @param uniCol column name with unique constraint
+     * @param colValue column value of a record to be retrieve
+     * @param columnNames columns to select
+     * @return the DTO, or null if there is no such record
+     */
+    public <D> D getColumns(Class<D> dtoType, String uniCol, Object colValue, String... columnNames)
+            throws ArgumentFormatException {
+        if (dtoType == null || columnNames == null || uniCol == null || colValue == null) {
+            return null;
+        }
+        if (!metadata.isUnique(uniCol)) {
+            throw new ArgumentFormatException("The method only accepts using primary key or column with unique value" +
+                    "to query");
+        }
+        String sql = "select " + String.join(", ", columnNames) + " from " + metadata.getTableName() +
+                " where " + uniCol + "=?";
+        List<D> result = executeProjection(dtoType, sql, new Object[]{colValue}, options);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Get selected columns of records filter by a column value as DTOs, in the order specify
+     *
+     * @param dtoType DTO class, see {@link ProjectionPlan} for how columns are bound
+     * @param columnNames a list of column names of the table to retrieve
+     * @param fieldName a column name
+     * @param fieldValue the column value of record(s) to be retrieve
+     * @param orderCol the column to order by
+     * @param order "asc" for ascending, "desc" for descending
+     * @return a list of DTOs in specified order
+     */
+    public <D> List<D> getRecordsInOrder(Class<D> dtoType, List<String> columnNames, String fieldName,
+                                         Object fieldValue, String orderCol, String order)
+            throws ArgumentFormatException {
+        if (dtoType == null || columnNames == null || fieldName == null || fieldValue == null ||
+                orderCol == null || order == null) {
+            return null;
+        }
+        if (!order.equals("asc") && !order.equals("desc")) {
+            throw new ArgumentFormatException("Order must be in \"asc\" or \"desc\"");
+        }
+        String sql = "select " + String.join(", ", columnNames) + " from " + metadata.getTableName() +
+                " where " + fieldName + "=?" + " order by " + orderCol + " " + order;
+        return executeProjection(dtoType, sql, new Object[]{fieldValue}, options);
+    }
+
+    /**
+     * Get all records of join-tables as DTOs
+     *
+     * @param dtoType DTO class, see {@link ProjectionPlan} for how columns are bound
+     * @param jType inner, left, right
+     * @param pkA primary key of left table
+     * @param tableB right table to be join
+     * @param fkA foreign key of right table reference left table
+     * @param columnNames a list of column names of the table to retrieve
+     * @return a list of DTOs of all records of join-tables
+     */
+    public <D> List<D> getJoint(Class<D> dtoType, String jType, String pkA, String tableB, String fkA,
+                                List<String> columnNames) throws ArgumentFormatException {
+        if (dtoType == null || pkA == null || tableB == null || fkA == null || columnNames == null) {
+            return null;
+        }
+        String sql = "select " + String.join(", ", columnNames) + " from " + metadata.getTableName() + " " +
+                jType + " join " + tableB + " on " + pkA + " = " + fkA;
+        return executeProjection(dtoType, sql, new Object[0], options);
+    }
+
+    /**
+     * Get record(s) of joint tables filter by a column value as DTOs
+     *
+     * @param dtoType DTO class, see {@link ProjectionPlan} for how columns are bound
+     * @param jType inner, left, right
+     * @param pkA primary key of default table
+     * @param tableB right table to be join
+     * @param fkA foreign key of right table reference left table
+     * @param columnNames a list of column names of the table to retrieve
+     * @param fieldName a column name
+     * @param fieldValue the column value of record(s) to be retrieve
+     * @return a list of DTOs of records of join-tables fulfill the criterion
+     */
+    public <D> List<D> getJointWhere(Class<D> dtoType, String jType, String pkA, String tableB, String fkA,
+                                     List<String> columnNames, String fieldName, Object fieldValue)
+            throws ArgumentFormatException {
+        if (dtoType == null || pkA == null || tableB == null || fkA == null || columnNames == null ||
+                fieldName == null || fieldValue == null) {
+            return null;
+        }
+        String sql = "select " + String.join(", ", columnNames) + " from " + metadata.getTableName() + " " +
+                jType + " join " + tableB + " on " + pkA + " = " + fkA + " where " + fieldName + "=?";
+        return executeProjection(dtoType, sql, new Object[]{fieldValue}, options);
+    }
+
+    /**
+     * Run a select statement and map its rows to DTOs
+     *
+     * @param dtoType DTO class
+     * @param sql parameterized select statement
+     * @param parameters values bound to the statement
+     * @param options result set settings of the query
+     * @return the DTOs
+     */
+    <D> List<D> executeProjection(Class<D> dtoType, String sql, Object[] parameters, QueryOptions options)
+            throws ArgumentFormatException {
+        List<D> result = new ArrayList<>();
+        Connection conn = acquire(options);
+        try (PreparedStatement ps = prepare(conn, sql, options)) {
+            MapperUtil.setPs(ps, parameters);
+            ResultSet rs = ps.executeQuery();
+            ProjectionPlan<D> plan = ProjectionPlan.of(dtoType, sql, rs);
+            while (rs.next()) {
+                result.add(plan.map(rs));
+            }
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            release(conn);
         }
         return result;
     }
@@ -852,36 +1882,19 @@ public class AdeOrm implements Mapper {
         if (columnName == null || id == null || idValue == null) {
             return false;
         }
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "update " + table.tableName() + " set " + columnName + "= ? " + " where " + id + "=?";
+        String sql = "update " + metadata.getTableName() + " set " + columnName + "= ? " + " where " + id + "=?";
 
-        if (!isTransaction) {
-            try (Connection conn = getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                MapperUtil.setPs(ps, newColumnValue, idValue);
-                ps.executeUpdate();
-            } catch (SQLException e) {
-                throw new ArgumentFormatException("Arguments format are not correct", e);
-            }
-        } else {
-            PreparedStatement ps = null;
-            try {
-                Connection conn = getConnection();
-                ps = conn.prepareStatement(sql);
-                MapperUtil.setPs(ps, newColumnValue, idValue);
-                if (ps.executeUpdate() == 0) {
-                    completes.add(false);
-                }
-            } catch (SQLException e) {
-                throw new ArgumentFormatException("Arguments format are not correct", e);
-            } finally {
-                try {
-                    assert ps != null;
-                    ps.close();
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
+        Connection conn = acquire();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            MapperUtil.setPs(ps, newColumnValue, idValue);
+            if (ps.executeUpdate() == 0) {
+                markFailed();
             }
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        } finally {
+            rowsWritten(id, idValue);
+            release(conn);
         }
         return true;
     }
@@ -891,37 +1904,23 @@ public class AdeOrm implements Mapper {
      *
      * @return all records of the table
      */
-    public List<Object> getAll2() throws ArgumentFormatException {
-        TableName table = clazz.getDeclaredAnnotation(TableName.class);
-        String sql = "select * from " + table.tableName();
-        Object object = null;
-        Constructor<?> constructor;
-        Field[] fields = clazz.getDeclaredFields();
+    public List<T> getAll2() throws ArgumentFormatException {
+        String sql = metadata.getSqlTemplates().get(SqlTemplateCache.Operation.SELECT_ALL);
 
-        List<Object> result = new ArrayList<>();
-        PreparedStatement ps = null;
-        try {
-            Connection conn = getConnectionFromPool();
-            ps = conn.prepareStatement(sql);
-            constructor = clazz.getConstructor();
+        List<T> result = new ArrayList<>();
+        Connection conn = acquire(options);
+        try (PreparedStatement ps = prepare(conn, sql, options)) {
             ResultSet rs = ps.executeQuery();
+            ResultSetPlan plan = metadata.getPlan(sql, rs);
             while (rs.next()) {
-                object = constructor.newInstance();
-                for (int i = 0; i < fields.length; i++) {
-                    ColumnName c = fields[i].getDeclaredAnnotation(ColumnName.class);
-                    MapperUtil.setField(object, fields[i], rs.getString(c.columnName()));
-                }
-                result.add(object);
+                T object = newInstance();
+                plan.populate(object, rs);
+                result.add(identify(object));
             }
-        } catch (SQLException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+        } catch (SQLException e) {
             throw new ArgumentFormatException("Argument formats are not correct", e);
         } finally {
-            BasicConnectionPoolUtil.releaseConnection(conn);
-            try {
-                ps.close();
-            } catch (SQLException throwables) {
-                throwables.printStackTrace();
-            }
+            release(conn);
         }
 
         return result;
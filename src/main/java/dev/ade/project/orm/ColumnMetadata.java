@@ -0,0 +1,108 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.annotations.ColumnName;
+import dev.ade.project.annotations.ForeignKey;
+import dev.ade.project.annotations.PrimaryKey;
+import dev.ade.project.annotations.Unique;
+import dev.ade.project.util.ColumnReader;
+import dev.ade.project.util.ColumnReaders;
+import dev.ade.project.util.PropertyAccessor;
+import dev.ade.project.util.PropertyAccessorFactory;
+
+import java.lang.reflect.Field;
+
+/**
+ * The ColumnMetadata class describes one annotated field of a POJO class:
+ * its column name, key constraints, the table it references, the bound property accessor and the
+ * typed reader used to hydrate it from a result set.
+ * Instances are immutable and built once by {@link EntityMetadata}.
+ */
+public final class ColumnMetadata {
+    private final Field field;
+    private final String columnName;
+    private final boolean isPrimaryKey;
+    private final boolean isUnique;
+    private final String foreignTable;
+    private final PropertyAccessor accessor;
+    private final ColumnReader reader;
+
+    ColumnMetadata(Class<?> clazz, Field field, PropertyAccessorFactory accessorFactory) {
+        this.field = field;
+        this.columnName = field.getDeclaredAnnotation(ColumnName.class).columnName();
+        this.isPrimaryKey = field.isAnnotationPresent(PrimaryKey.class);
+        this.isUnique = isPrimaryKey || field.isAnnotationPresent(Unique.class);
+        ForeignKey foreignKey = field.getDeclaredAnnotation(ForeignKey.class);
+        this.foreignTable = foreignKey == null || foreignKey.tableName().isEmpty() ? null : foreignKey.tableName();
+        this.accessor = accessorFactory.create(clazz, field);
+        this.reader = ColumnReaders.forType(field.getType());
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getFieldName() {
+        return field.getName();
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public boolean isPrimaryKey() {
+        return isPrimaryKey;
+    }
+
+    public boolean isUnique() {
+        return isUnique;
+    }
+
+    /**
+     * @return the table named by the @ForeignKey of the field, or null if it has none
+     */
+    public String getForeignTable() {
+        return foreignTable;
+    }
+
+    public PropertyAccessor getAccessor() {
+        return accessor;
+    }
+
+    public ColumnReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Read the value of this column from a POJO
+     *
+     * @param object POJO to read from
+     * @return the field value, primitives are boxed
+     */
+    public Object getValue(Object object) {
+        return accessor.get(object);
+    }
+
+    /**
+     * Write the value of this column into a POJO
+     *
+     * @param object POJO to write to
+     * @param value field value, primitives must be passed boxed
+     */
+    public void setValue(Object object, Object value) {
+        accessor.set(object, value);
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnMetadata{" +
+                "fieldName='" + field.getName() + '\'' +
+                ", columnName='" + columnName + '\'' +
+                ", isPrimaryKey=" + isPrimaryKey +
+                ", isUnique=" + isUnique +
+                '}';
+    }
+}
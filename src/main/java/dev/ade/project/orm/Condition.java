@@ -0,0 +1,224 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.util.MapperUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Condition class is one predicate of a {@link Query} where clause, e.g.
+ * {@code Condition.eq("city", "Miami")} or {@code Condition.between("rating", 2, 4)}.
+ * Column names are checked against the entity when the query is compiled and every
+ * value is sent as a statement parameter, never concatenated into the SQL.
+ */
+public final class Condition {
+
+    enum Operator {
+        EQ("="), NE("<>"), GT(">"), GE(">="), LT("<"), LE("<="), LIKE("like"),
+        IN("in"), BETWEEN("between"), IS_NULL("is null"), IS_NOT_NULL("is not null"), OR("or");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final Operator operator;
+    private final String column;
+    private final List<Object> values;
+    private final List<Condition> anyOf;
+
+    private Condition(Operator operator, String column, List<Object> values, List<Condition> anyOf) {
+        this.operator = operator;
+        this.column = column;
+        this.values = values;
+        this.anyOf = anyOf;
+    }
+
+    private static Condition of(Operator operator, String column, Object... values) {
+        return new Condition(operator, column, Arrays.asList(values), Collections.emptyList());
+    }
+
+    /**
+     * @return column = value, or column is null when value is null
+     */
+    public static Condition eq(String column, Object value) {
+        return value == null ? isNull(column) : of(Operator.EQ, column, value);
+    }
+
+    /**
+     * @return column &lt;&gt; value, or column is not null when value is null
+     */
+    public static Condition ne(String column, Object value) {
+        return value == null ? isNotNull(column) : of(Operator.NE, column, value);
+    }
+
+    public static Condition gt(String column, Object value) {
+        return of(Operator.GT, column, value);
+    }
+
+    public static Condition ge(String column, Object value) {
+        return of(Operator.GE, column, value);
+    }
+
+    public static Condition lt(String column, Object value) {
+        return of(Operator.LT, column, value);
+    }
+
+    public static Condition le(String column, Object value) {
+        return of(Operator.LE, column, value);
+    }
+
+    /**
+     * @param pattern a like pattern with % and _ wildcards
+     */
+    public static Condition like(String column, String pattern) {
+        return of(Operator.LIKE, column, pattern);
+    }
+
+    public static Condition in(String column, Collection<?> values) {
+        return new Condition(Operator.IN, column, values == null ? null : new ArrayList<>(values),
+                Collections.emptyList());
+    }
+
+    public static Condition in(String column, Object... values) {
+        return in(column, values == null ? null : Arrays.asList(values));
+    }
+
+    /**
+     * @return column between low and high, both bounds included
+     */
+    public static Condition between(String column, Object low, Object high) {
+        return of(Operator.BETWEEN, column, low, high);
+    }
+
+    public static Condition isNull(String column) {
+        return of(Operator.IS_NULL, column);
+    }
+
+    public static Condition isNotNull(String column) {
+        return of(Operator.IS_NOT_NULL, column);
+    }
+
+    /**
+     * @return a condition true when any of the given conditions is
+     */
+    public static Condition or(Condition... conditions) {
+        return new Condition(Operator.OR, null, Collections.emptyList(),
+                conditions == null ? null : Arrays.asList(conditions));
+    }
+
+    /**
+     * Append the SQL of the condition and collect its parameter values
+     *
+     * @param metadata entity the condition is checked against
+     * @param sql where clause being built
+     * @param parameters values bound to the where clause, in parameter order
+     */
+    void appendTo(EntityMetadata metadata, StringBuilder sql, List<Object> parameters)
+            throws ArgumentFormatException {
+        if (operator == Operator.OR) {
+            if (anyOf == null || anyOf.isEmpty()) {
+                throw new ArgumentFormatException("An or condition needs at least one condition");
+            }
+            sql.append('(');
+            for (int i = 0; i < anyOf.size(); i++) {
+                if (i > 0) {
+                    sql.append(" or ");
+                }
+                if (anyOf.get(i) == null) {
+                    throw new ArgumentFormatException("Conditions cannot be null");
+                }
+                anyOf.get(i).appendTo(metadata, sql, parameters);
+            }
+            sql.append(')');
+            return;
+        }
+
+        ColumnMetadata columnMetadata = column == null ? null : metadata.getColumn(column);
+        if (columnMetadata == null) {
+            throw new ArgumentFormatException("Unknown column " + column + " of table " + metadata.getTableName());
+        }
+        if (values == null || (operator == Operator.IN && values.isEmpty())) {
+            throw new ArgumentFormatException("An in condition needs at least one value");
+        }
+        for (Object value : values) {
+            if (value == null) {
+                throw new ArgumentFormatException("Use isNull or isNotNull to compare " + column + " with null");
+            }
+            Object bound = toColumnType(columnMetadata.getType(), value);
+            if (bound == null) {
+                throw new ArgumentFormatException("A " + value.getClass().getSimpleName() + " " + value +
+                        " cannot be compared with column " + column);
+            }
+            parameters.add(bound instanceof Enum ? ((Enum<?>) bound).name() : bound);
+        }
+
+        sql.append(columnMetadata.getColumnName()).append(' ').append(operator.sql);
+        switch (operator) {
+            case IS_NULL:
+            case IS_NOT_NULL:
+                break;
+            case IN:
+                sql.append(" (");
+                for (int i = 0; i < values.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(')');
+                break;
+            case BETWEEN:
+                sql.append(" ? and ?");
+                break;
+            default:
+                sql.append(" ?");
+        }
+    }
+
+    /**
+     * A value is compatible with a column of its own type and any numeric value with a
+     * numeric column. A String given for another column type is converted to that type, so
+     * the parameter is bound with the SQL type of the column
+     *
+     * @return the value to bind, or null if the value cannot be compared with the column
+     */
+    private static Object toColumnType(Class<?> type, Object value) {
+        Class<?> boxed = boxed(type);
+        if (boxed.isInstance(value) || (value instanceof Number && Number.class.isAssignableFrom(boxed))) {
+            return value;
+        }
+        if (!(value instanceof String)) {
+            return null;
+        }
+        if (type.isEnum()) {
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(value)) {
+                    return constant;
+                }
+            }
+            return null;
+        }
+        return MapperUtil.convert((String) value, type);
+    }
+
+    /**
+     * @return the wrapper class of a primitive type, other types unchanged
+     */
+    static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return Boolean.class;
+    }
+}
@@ -0,0 +1,161 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.util.MapperUtil;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The EntityCache class is the process-wide second-level cache of one entity class,
+ * enabled with {@link AdeOrm#enableCache}. It holds the column values of records looked up
+ * by primary key rather than the POJOs themselves, so every read gets its own instance.
+ * Mutable values such as byte arrays and timestamps are copied when they are cached and
+ * again when a record is built from them, so callers cannot change a cached record. Entries are evicted least recently used first once
+ * the cache is full and expire after their time to live. Writes through AdeOrm drop the
+ * records they change, again when their transaction ends.
+ */
+public class EntityCache {
+    private final int maxSize;
+    private final long timeToLive;
+    private final Map<Object, Entry> entries;
+    // bumped by every invalidation, so a read that raced with a write does not cache stale values
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final class Entry {
+        private final Object[] values;
+        private final long expiresAt;
+
+        private Entry(Object[] values, long expiresAt) {
+            this.values = values;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param maxSize maximum number of cached records
+     * @param timeToLive milliseconds a record stays cached, 0 for no expiry
+     */
+    EntityCache(int maxSize, long timeToLive) {
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param id primary key value
+     * @return the cached column values of the record, or null on a miss, to be copied by
+     * the caller before a mutable value is handed out
+     */
+    synchronized Object[] get(Object id) {
+        Entry entry = entries.get(id);
+        if (entry != null && timeToLive > 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(id);
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.values;
+    }
+
+    /**
+     * @return a stamp to pass to put, taken before the record is read from the database
+     */
+    synchronized long stamp() {
+        return invalidations;
+    }
+
+    /**
+     * Cache the column values of a record unless a write was made since the stamp was taken
+     *
+     * @param id primary key value
+     * @param values column values in the order of the entity columns, mutable ones are copied
+     * @param stamp stamp taken before the record was read
+     */
+    synchronized void put(Object id, Object[] values, long stamp) {
+        if (id != null && stamp == invalidations) {
+            long expiresAt = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : Long.MAX_VALUE;
+            Object[] copy = new Object[values.length];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = MapperUtil.copyOf(values[i]);
+            }
+            entries.put(id, new Entry(copy, expiresAt));
+        }
+    }
+
+    /**
+     * Drop a record
+     *
+     * @param id primary key value, null to drop every record
+     */
+    synchronized void remove(Object id) {
+        invalidations++;
+        if (id == null) {
+            entries.clear();
+        } else {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Drop records with one invalidation
+     *
+     * @param ids primary key values
+     */
+    synchronized void removeAll(Collection<?> ids) {
+        invalidations++;
+        for (Object id : ids) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Drop every record
+     */
+    public void clear() {
+        remove(null);
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return number of records evicted because the cache was full or they expired
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+}
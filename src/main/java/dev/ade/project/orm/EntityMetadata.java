@@ -0,0 +1,243 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.annotations.ColumnName;
+import dev.ade.project.annotations.TableName;
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.util.MethodHandleAccessorFactory;
+import dev.ade.project.util.PropertyAccessorFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The EntityMetadata class holds everything the orm needs to know about a POJO class:
+ * table name, ordered columns, primary key, unique columns, referenced tables and resolved accessors.
+ * It is computed once per class and cached, so no orm call repeats the reflection lookups.
+ */
+public final class EntityMetadata {
+    private static final ClassValue<EntityMetadata> CACHE = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> clazz) {
+            return new EntityMetadata(clazz);
+        }
+    };
+    private static volatile PropertyAccessorFactory accessorFactory = new MethodHandleAccessorFactory();
+    private static final int MAX_CACHED_PLANS = 256;
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final List<ColumnMetadata> columns;
+    private final List<ColumnMetadata> uniqueColumns;
+    private final ColumnMetadata primaryKey;
+    private final Set<String> referencedTables;
+    private final Map<String, ColumnMetadata> byColumnName;
+    private final Map<String, ColumnMetadata> byFieldName;
+    private final Map<String, ColumnMetadata> byLowerColumnName;
+    private final Constructor<?> constructor;
+    private final Map<String, ResultSetPlan> plans = new ConcurrentHashMap<>();
+    private final SqlTemplateCache sqlTemplates;
+    private volatile EntityCache cache;
+
+    private EntityMetadata(Class<?> clazz) {
+        this.entityClass = clazz;
+        TableName table = clazz.getDeclaredAnnotation(TableName.class);
+        this.tableName = table == null ? null : table.tableName();
+
+        List<ColumnMetadata> columns = new ArrayList<>();
+        List<ColumnMetadata> uniqueColumns = new ArrayList<>();
+        Map<String, ColumnMetadata> byColumnName = new HashMap<>();
+        Map<String, ColumnMetadata> byFieldName = new HashMap<>();
+        Map<String, ColumnMetadata> byLowerColumnName = new HashMap<>();
+        Set<String> referencedTables = new HashSet<>();
+        ColumnMetadata primaryKey = null;
+        for (Field field : clazz.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || !field.isAnnotationPresent(ColumnName.class)) {
+                continue;
+            }
+            ColumnMetadata column = new ColumnMetadata(clazz, field, accessorFactory);
+            columns.add(column);
+            byColumnName.put(column.getColumnName(), column);
+            byFieldName.put(column.getFieldName(), column);
+            byLowerColumnName.put(column.getColumnName().toLowerCase(Locale.ROOT), column);
+            if (column.isPrimaryKey()) {
+                primaryKey = column;
+            }
+            if (column.isUnique()) {
+                uniqueColumns.add(column);
+            }
+            if (column.getForeignTable() != null) {
+                referencedTables.add(column.getForeignTable().toLowerCase(Locale.ROOT));
+            }
+        }
+        this.columns = Collections.unmodifiableList(columns);
+        this.uniqueColumns = Collections.unmodifiableList(uniqueColumns);
+        this.byColumnName = Collections.unmodifiableMap(byColumnName);
+        this.byFieldName = Collections.unmodifiableMap(byFieldName);
+        this.byLowerColumnName = Collections.unmodifiableMap(byLowerColumnName);
+        this.primaryKey = primaryKey;
+        this.referencedTables = Collections.unmodifiableSet(referencedTables);
+
+        Constructor<?> constructor;
+        try {
+            constructor = clazz.getConstructor();
+        } catch (NoSuchMethodException e) {
+            constructor = null;
+        }
+        this.constructor = constructor;
+        this.sqlTemplates = new SqlTemplateCache(this);
+    }
+
+    /**
+     * Get the cached metadata of a POJO class, building it on first use
+     *
+     * @param clazz the class of a POJO class
+     * @return metadata shared by all callers
+     */
+    public static EntityMetadata of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    /**
+     * Replace the factory used to bind property accessors. Only metadata built
+     * after the call is affected, so set it before the first orm call.
+     *
+     * @param factory the accessor factory to use
+     */
+    public static void setAccessorFactory(PropertyAccessorFactory factory) {
+        if (factory != null) {
+            accessorFactory = factory;
+        }
+    }
+
+    /**
+     * @return the factory property accessors are bound with
+     */
+    static PropertyAccessorFactory accessorFactory() {
+        return accessorFactory;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return annotated columns in field declaration order
+     */
+    public List<ColumnMetadata> getColumns() {
+        return columns;
+    }
+
+    public List<ColumnMetadata> getUniqueColumns() {
+        return uniqueColumns;
+    }
+
+    /**
+     * @return the primary key column, or null if no field is marked with @PrimaryKey
+     */
+    public ColumnMetadata getPrimaryKey() {
+        return primaryKey;
+    }
+
+    /**
+     * @return lower case names of the tables referenced by @ForeignKey fields
+     */
+    public Set<String> getReferencedTables() {
+        return referencedTables;
+    }
+
+    public ColumnMetadata getColumn(String columnName) {
+        return byColumnName.get(columnName);
+    }
+
+    /**
+     * Look up a column the way JDBC drivers match column labels, ignoring case
+     *
+     * @param columnName column name or label as reported by the driver
+     * @return the column, or null if no field maps to it
+     */
+    public ColumnMetadata getColumnIgnoreCase(String columnName) {
+        ColumnMetadata column = byColumnName.get(columnName);
+        return column != null ? column : byLowerColumnName.get(columnName.toLowerCase(Locale.ROOT));
+    }
+
+    public ColumnMetadata getColumnByField(String fieldName) {
+        return byFieldName.get(fieldName);
+    }
+
+    public boolean isUnique(String columnName) {
+        ColumnMetadata column = byColumnName.get(columnName);
+        return column != null && column.isUnique();
+    }
+
+    /**
+     * @return the second-level cache of this entity, or null if it is not enabled
+     */
+    EntityCache getCache() {
+        return cache;
+    }
+
+    void setCache(EntityCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return the precomputed SQL statements of this entity
+     */
+    public SqlTemplateCache getSqlTemplates() {
+        return sqlTemplates;
+    }
+
+    /**
+     * Get the column-index plan for a query, resolving it from the result set
+     * metadata the first time the SQL string is seen
+     *
+     * @param sql the SQL string the result set was produced by
+     * @param rs the result set to be mapped
+     * @return a plan for mapping rows of the result set by index
+     */
+    public ResultSetPlan getPlan(String sql, ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        ResultSetPlan plan = plans.get(sql);
+        if (plan == null || !plan.matches(md)) {
+            plan = ResultSetPlan.resolve(this, md);
+            if (plans.size() < MAX_CACHED_PLANS || plans.containsKey(sql)) {
+                plans.put(sql, plan);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Create a new instance of the POJO class with its public no-arg constructor
+     *
+     * @return a new empty POJO
+     */
+    public Object newInstance() throws ArgumentFormatException {
+        if (constructor == null) {
+            throw new ArgumentFormatException(entityClass.getName() + " has no public no-arg constructor");
+        }
+        try {
+            return constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new ArgumentFormatException("Arguments format are not correct", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The Page class holds one page of records read with keyset pagination, together
+ * with the continuation token of the next page. The token carries the ordering values
+ * of the last record, so the next page seeks past it through the index instead of
+ * skipping rows with an offset, and every page costs the same however deep it is.
+ * Ordering columns can be of the types read by {@link dev.ade.project.util.ColumnReaders}
+ * except those read with the getObject fallback.
+ */
+public class Page<T> {
+    private static final Map<Class<?>, Function<String, Object>> PARSERS = new HashMap<>();
+
+    static {
+        put(Boolean.class, boolean.class, Boolean::valueOf);
+        put(Byte.class, byte.class, Byte::valueOf);
+        put(Short.class, short.class, Short::valueOf);
+        put(Integer.class, int.class, Integer::valueOf);
+        put(Long.class, long.class, Long::valueOf);
+        put(Float.class, float.class, Float::valueOf);
+        put(Double.class, double.class, Double::valueOf);
+        put(Character.class, char.class, text -> {
+            if (text.length() != 1) {
+                throw new IllegalArgumentException(text);
+            }
+            return text.charAt(0);
+        });
+        PARSERS.put(String.class, text -> text);
+        PARSERS.put(BigDecimal.class, BigDecimal::new);
+        PARSERS.put(BigInteger.class, BigInteger::new);
+        PARSERS.put(LocalDate.class, LocalDate::parse);
+        PARSERS.put(LocalDateTime.class, LocalDateTime::parse);
+        PARSERS.put(LocalTime.class, LocalTime::parse);
+        PARSERS.put(OffsetDateTime.class, OffsetDateTime::parse);
+        PARSERS.put(Date.class, Date::valueOf);
+        PARSERS.put(Timestamp.class, Timestamp::valueOf);
+        PARSERS.put(byte[].class, text -> Base64.getDecoder().decode(text));
+    }
+
+    private static void put(Class<?> boxed, Class<?> primitive, Function<String, Object> parser) {
+        PARSERS.put(boxed, parser);
+        PARSERS.put(primitive, parser);
+    }
+
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the token to pass to get the next page, or null on the last page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * Check that the values of the ordering columns can be carried by a token
+     *
+     * @param columns ordering columns
+     * @throws ArgumentFormatException if a column is of a type with no token encoding
+     */
+    static void checkKeys(List<ColumnMetadata> columns) throws ArgumentFormatException {
+        for (ColumnMetadata column : columns) {
+            if (!column.getType().isEnum() && !PARSERS.containsKey(column.getType())) {
+                throw new ArgumentFormatException("A page cannot be ordered by " + column.getColumnName() +
+                        " of type " + column.getType().getName());
+            }
+        }
+    }
+
+    /**
+     * Encode the ordering values of a record into a continuation token
+     *
+     * @param order "asc" or "desc", checked again when the token is decoded
+     * @param columns ordering columns
+     * @param last last record of the page
+     * @return URL-safe Base64 token
+     */
+    static String encodeToken(String order, List<ColumnMetadata> columns, Object last) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(order);
+            out.writeByte(columns.size());
+            for (ColumnMetadata column : columns) {
+                out.writeUTF(column.getColumnName());
+                out.writeUTF(format(column.getValue(last)));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode the ordering values of a continuation token
+     *
+     * @param token token returned with a previous page
+     * @param order "asc" or "desc" of the query
+     * @param columns ordering columns of the query
+     * @return the values to seek past, in column order
+     * @throws ArgumentFormatException if the token is malformed or was made for another ordering
+     */
+    static Object[] decodeToken(String token, String order, List<ColumnMetadata> columns)
+            throws ArgumentFormatException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (!order.equals(in.readUTF()) || in.readByte() != columns.size()) {
+                throw new ArgumentFormatException("The page token was made for another ordering");
+            }
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                ColumnMetadata column = columns.get(i);
+                if (!column.getColumnName().equals(in.readUTF())) {
+                    throw new ArgumentFormatException("The page token was made for another ordering");
+                }
+                values[i] = parse(in.readUTF(), column.getType());
+            }
+            return values;
+        } catch (IOException | RuntimeException e) {
+            throw new ArgumentFormatException("The page token is not valid", e);
+        }
+    }
+
+    /**
+     * @return the text of an ordering value, read back by parse
+     */
+    private static String format(Object value) {
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return String.valueOf(value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(String text, Class<?> type) {
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, text);
+        }
+        return PARSERS.get(type).apply(text);
+    }
+}
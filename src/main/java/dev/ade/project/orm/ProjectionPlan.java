@@ -0,0 +1,183 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.annotations.ColumnName;
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.util.ColumnReader;
+import dev.ade.project.util.ColumnReaders;
+import dev.ade.project.util.PropertyAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ProjectionPlan class maps the columns of a projection query to a DTO class, reading
+ * each column with the getter of its target type. A DTO with one public constructor taking
+ * as many parameters as there are columns is built through it, columns bound in select
+ * order; any other DTO is built with its public no-arg constructor and columns are bound
+ * to the property of the same name, ignoring case and underscores, or of the same
+ * {@link ColumnName}. Plans are resolved once and cached per DTO class and SQL string.
+ */
+final class ProjectionPlan<D> {
+    private static final int MAX_CACHED_PLANS = 256;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ClassValue<Map<String, ProjectionPlan<?>>> PLANS =
+            new ClassValue<Map<String, ProjectionPlan<?>>>() {
+                @Override
+                protected Map<String, ProjectionPlan<?>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private final Class<D> type;
+    private final int columnCount;
+    private final ColumnReader[] readers;
+    // constructor binding
+    private final MethodHandle constructor;
+    private final Object[] defaults;
+    // setter binding
+    private final PropertyAccessor[] accessors;
+
+    private ProjectionPlan(Class<D> type, int columnCount, ColumnReader[] readers, MethodHandle constructor,
+                           Object[] defaults, PropertyAccessor[] accessors) {
+        this.type = type;
+        this.columnCount = columnCount;
+        this.readers = readers;
+        this.constructor = constructor;
+        this.defaults = defaults;
+        this.accessors = accessors;
+    }
+
+    /**
+     * Get the plan mapping a result set to a DTO class, resolving it the first time the
+     * SQL string is seen
+     *
+     * @param type the DTO class
+     * @param sql the SQL string the result set was produced by
+     * @param rs the result set to be mapped
+     * @return a plan for mapping rows of the result set by index
+     */
+    @SuppressWarnings("unchecked")
+    static <D> ProjectionPlan<D> of(Class<D> type, String sql, ResultSet rs)
+            throws SQLException, ArgumentFormatException {
+        Map<String, ProjectionPlan<?>> plans = PLANS.get(type);
+        ResultSetMetaData md = rs.getMetaData();
+        ProjectionPlan<D> plan = (ProjectionPlan<D>) plans.get(sql);
+        if (plan == null || plan.columnCount != md.getColumnCount()) {
+            plan = resolve(type, md);
+            if (plans.size() < MAX_CACHED_PLANS || plans.containsKey(sql)) {
+                plans.put(sql, plan);
+            }
+        }
+        return plan;
+    }
+
+    private static <D> ProjectionPlan<D> resolve(Class<D> type, ResultSetMetaData md)
+            throws SQLException, ArgumentFormatException {
+        int count = md.getColumnCount();
+        ColumnReader[] readers = new ColumnReader[count];
+        Constructor<?> constructor = null;
+        for (Constructor<?> candidate : type.getConstructors()) {
+            if (count > 0 && candidate.getParameterCount() == count) {
+                if (constructor != null) {
+                    throw new ArgumentFormatException(type.getName() + " has more than one constructor taking " +
+                            count + " parameters");
+                }
+                constructor = candidate;
+            }
+        }
+
+        try {
+            if (constructor != null) {
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                Object[] defaults = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    readers[i] = ColumnReaders.forType(parameterTypes[i]);
+                    if (parameterTypes[i].isPrimitive()) {
+                        defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+                    }
+                }
+                MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+                        .asSpreader(Object[].class, count)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                return new ProjectionPlan<>(type, count, readers, handle, defaults, null);
+            }
+
+            Constructor<D> noArg = type.getConstructor();
+            PropertyAccessor[] accessors = new PropertyAccessor[count];
+            for (int i = 0; i < count; i++) {
+                Field field = findField(type, md.getColumnLabel(i + 1));
+                if (field == null) {
+                    throw new ArgumentFormatException("Column " + md.getColumnLabel(i + 1) + " has no property in " +
+                            type.getName());
+                }
+                readers[i] = ColumnReaders.forType(field.getType());
+                accessors[i] = EntityMetadata.accessorFactory().create(type, field);
+            }
+            MethodHandle handle = LOOKUP.unreflectConstructor(noArg)
+                    .asType(MethodType.methodType(Object.class));
+            return new ProjectionPlan<>(type, count, readers, handle, null, accessors);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ArgumentFormatException(type.getName() + " needs a public constructor taking " + count +
+                    " parameters or a public no-arg constructor", e);
+        }
+    }
+
+    private static Field findField(Class<?> type, String label) {
+        String name = label.replace("_", "");
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                ColumnName columnName = field.getDeclaredAnnotation(ColumnName.class);
+                if (columnName != null ? columnName.columnName().equalsIgnoreCase(label) :
+                        field.getName().equalsIgnoreCase(name)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Build a DTO from the current row of a result set, SQL NULL leaves primitives at
+     * their default value
+     *
+     * @param rs result set positioned on a row
+     * @return a new DTO
+     */
+    D map(ResultSet rs) throws SQLException, ArgumentFormatException {
+        try {
+            if (accessors == null) {
+                Object[] arguments = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    Object value = readers[i].read(rs, i + 1);
+                    arguments[i] = value != null ? value : defaults[i];
+                }
+                return type.cast(constructor.invokeExact(arguments));
+            }
+            Object dto = constructor.invokeExact();
+            for (int i = 0; i < columnCount; i++) {
+                Object value = readers[i].read(rs, i + 1);
+                if (value != null) {
+                    accessors[i].set(dto, value);
+                }
+            }
+            return type.cast(dto);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ArgumentFormatException("Could not create a " + type.getName(), (Exception) e);
+        }
+    }
+}
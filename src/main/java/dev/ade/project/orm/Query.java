@@ -0,0 +1,318 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The Query class builds a select statement on the table of one entity:
+ * <pre>
+ * List&lt;Post&gt; posts = postOrm.select()
+ *         .where(Condition.eq("country", "Italy"), Condition.gt("rating", 3))
+ *         .orderBy("rating", "desc")
+ *         .limit(20)
+ *         .offset(40)
+ *         .list();
+ * </pre>
+ * Conditions passed to where are joined with "and", use {@link Condition#or} for "or".
+ * Columns are checked against the entity and limit and offset are statement parameters,
+ * so queries of the same shape compile to the same SQL and reuse their prepared statement
+ * and result set plan.
+ */
+public class Query<T> {
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final AdeOrm<T> adeOrm;
+    private final Class<T> type;
+    private final EntityMetadata metadata;
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<String[]> orders = new ArrayList<>();
+    private Integer limit;
+    private Integer offset;
+    private QueryOptions options;
+
+    Query(AdeOrm<T> adeOrm, Class<T> type, EntityMetadata metadata, QueryOptions options) {
+        this.adeOrm = adeOrm;
+        this.type = type;
+        this.metadata = metadata;
+        this.options = options;
+    }
+
+    /**
+     * @param conditions conditions all records must fulfill
+     */
+    public Query<T> where(Condition... conditions) {
+        this.conditions.addAll(Arrays.asList(conditions));
+        return this;
+    }
+
+    /**
+     * Order by a column in ascending order, later calls order ties
+     */
+    public Query<T> orderBy(String column) {
+        return orderBy(column, "asc");
+    }
+
+    /**
+     * @param column the column to order by
+     * @param order "asc" for ascending, "desc" for descending
+     */
+    public Query<T> orderBy(String column, String order) {
+        orders.add(new String[]{column, order});
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public Query<T> offset(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Use other result set settings than the ones of the AdeOrm for this query
+     *
+     * @param options fetch size, max rows, query timeout and read-only hint
+     */
+    public Query<T> options(QueryOptions options) {
+        this.options = options == null ? new QueryOptions() : new QueryOptions(options);
+        return this;
+    }
+
+    /**
+     * Run the query
+     *
+     * @return the matching records
+     */
+    public List<T> list() throws ArgumentFormatException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = toSql("select *", parameters, limit);
+        return adeOrm.executeQuery(sql, parameters.toArray(), options);
+    }
+
+    /**
+     * Run the query for the values of one column, read with the getter of the field type
+     * instead of being parsed from strings, e.g. {@code list("rating", Integer.class)}
+     *
+     * @param column the column to select
+     * @param valueType class of the values, the field type or a supertype of it; primitive
+     *                  fields use their wrapper class
+     * @return the column values of the matching records, null for SQL NULL
+     */
+    public <V> List<V> list(String column, Class<V> valueType) throws ArgumentFormatException {
+        ColumnMetadata columnMetadata = column == null ? null : metadata.getColumn(column);
+        if (columnMetadata == null) {
+            throw new ArgumentFormatException("Unknown column " + column + " of table " + metadata.getTableName());
+        }
+        if (valueType == null || !valueType.isAssignableFrom(Condition.boxed(columnMetadata.getType()))) {
+            throw new ArgumentFormatException("Column " + column + " cannot be read as " +
+                    (valueType == null ? null : valueType.getSimpleName()));
+        }
+        List<Object> parameters = new ArrayList<>();
+        String sql = toSql("select " + columnMetadata.getColumnName(), parameters, limit);
+        List<V> values = new ArrayList<>();
+        for (Object value : adeOrm.executeColumn(sql, parameters.toArray(), options, columnMetadata.getReader())) {
+            values.add(valueType.cast(value));
+        }
+        return values;
+    }
+
+    /**
+     * Run the query for some columns only, mapped to a DTO, e.g.
+     * {@code project(PostSummary.class, "post_id", "title")}
+     *
+     * @param dtoType DTO class, see {@link ProjectionPlan} for how columns are bound
+     * @param columns the columns to select
+     * @return a DTO for each matching record
+     */
+    public <D> List<D> project(Class<D> dtoType, String... columns) throws ArgumentFormatException {
+        if (dtoType == null || columns == null || columns.length == 0) {
+            throw new ArgumentFormatException("A projection needs a DTO class and at least one column");
+        }
+        StringBuilder select = new StringBuilder("select ");
+        for (int i = 0; i < columns.length; i++) {
+            ColumnMetadata column = columns[i] == null ? null : metadata.getColumn(columns[i]);
+            if (column == null) {
+                throw new ArgumentFormatException("Unknown column " + columns[i] + " of table " +
+                        metadata.getTableName());
+            }
+            select.append(i == 0 ? "" : ", ").append(column.getColumnName());
+        }
+        List<Object> parameters = new ArrayList<>();
+        String sql = toSql(select.toString(), parameters, limit);
+        return adeOrm.executeProjection(dtoType, sql, parameters.toArray(), options);
+    }
+
+    /**
+     * Run the query for its first record only
+     *
+     * @return the first matching record, or null if there is none
+     */
+    public T first() throws ArgumentFormatException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = toSql("select *", parameters, 1);
+        List<T> result = adeOrm.executeQuery(sql, parameters.toArray(), options);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Run the query and read its records lazily through a server-side cursor, fetching
+     * the rows of the fetch size option per round trip, 500 when it is not set
+     *
+     * @return an iterator to be closed unless it is read to the end
+     */
+    public ResultIterator<T> iterate() throws ArgumentFormatException {
+        return iterate(options.getFetchSize() > 0 ? options.getFetchSize() : STREAM_FETCH_SIZE);
+    }
+
+    /**
+     * Run the query and read its records lazily through a server-side cursor
+     *
+     * @param fetchSize number of rows fetched per round trip
+     * @return an iterator to be closed unless it is read to the end
+     */
+    public ResultIterator<T> iterate(int fetchSize) throws ArgumentFormatException {
+        if (fetchSize < 1) {
+            throw new ArgumentFormatException("Fetch size must be positive");
+        }
+        List<Object> parameters = new ArrayList<>();
+        String sql = toSql("select *", parameters, limit);
+        QueryOptions cursorOptions = new QueryOptions(options);
+        cursorOptions.setFetchSize(fetchSize);
+        return new ResultIterator<>(type, metadata, sql, parameters.toArray(), cursorOptions);
+    }
+
+    /**
+     * Run the query and stream its records, read lazily through a server-side cursor.
+     * The stream must be closed, e.g. with try-with-resources, unless it is read to the end.
+     *
+     * @return the matching records
+     */
+    public Stream<T> stream() throws ArgumentFormatException {
+        ResultIterator<T> iterator = iterate();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(iterator::close);
+    }
+
+    /**
+     * Compile the query
+     *
+     * @param parameters receives the values bound to the statement, in parameter order
+     * @return the parameterized SQL
+     */
+    public String toSql(List<Object> parameters) throws ArgumentFormatException {
+        return toSql("select *", parameters, limit);
+    }
+
+    /**
+     * Run the query for one page of records with keyset pagination. The page is ordered
+     * by the orderBy column, or the primary key when none is set, with the primary key
+     * breaking ties of a column that is not unique; the ordering column must not be null.
+     * Limit and offset are not used, there can be at most one orderBy.
+     *
+     * @param size maximum number of records of the page
+     * @param token continuation token of the previous page, null for the first page
+     * @return the page and the token of the next one
+     */
+    public Page<T> page(int size, String token) throws ArgumentFormatException {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null) {
+            throw new ArgumentFormatException("The class has no field marked with @PrimaryKey");
+        }
+        if (size < 1 || offset != null || orders.size() > 1) {
+            throw new ArgumentFormatException("A page needs a positive size, no offset and at most one order");
+        }
+        String[] order = orders.isEmpty() ? new String[]{pk.getColumnName(), "asc"} : orders.get(0);
+        ColumnMetadata orderColumn = orderColumn(order);
+        List<ColumnMetadata> keys = orderColumn.isUnique() ? Collections.singletonList(orderColumn) :
+                Arrays.asList(orderColumn, pk);
+        Page.checkKeys(keys);
+
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("select * from ").append(metadata.getTableName());
+        boolean where = appendWhere(sql, parameters);
+        if (token != null) {
+            Object[] after = Page.decodeToken(token, order[1], keys);
+            String operator = order[1].equals("asc") ? " > " : " < ";
+            sql.append(where ? " and " : " where ");
+            if (keys.size() == 1) {
+                sql.append(orderColumn.getColumnName()).append(operator).append('?');
+            } else {
+                sql.append('(').append(orderColumn.getColumnName()).append(", ").append(pk.getColumnName())
+                        .append(')').append(operator).append("(?, ?)");
+            }
+            parameters.addAll(Arrays.asList(after));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            sql.append(i == 0 ? " order by " : ", ").append(keys.get(i).getColumnName()).append(' ').append(order[1]);
+        }
+        // one extra record tells whether there is a next page
+        sql.append(" limit ?");
+        parameters.add(size + 1);
+
+        List<T> items = adeOrm.executeQuery(sql.toString(), parameters.toArray(), options);
+        if (items.size() <= size) {
+            return new Page<>(items, null);
+        }
+        items = new ArrayList<>(items.subList(0, size));
+        return new Page<>(items, Page.encodeToken(order[1], keys, items.get(size - 1)));
+    }
+
+    private boolean appendWhere(StringBuilder sql, List<Object> parameters) throws ArgumentFormatException {
+        for (int i = 0; i < conditions.size(); i++) {
+            if (conditions.get(i) == null) {
+                throw new ArgumentFormatException("Conditions cannot be null");
+            }
+            sql.append(i == 0 ? " where " : " and ");
+            conditions.get(i).appendTo(metadata, sql, parameters);
+        }
+        return !conditions.isEmpty();
+    }
+
+    private ColumnMetadata orderColumn(String[] order) throws ArgumentFormatException {
+        ColumnMetadata column = order[0] == null ? null : metadata.getColumn(order[0]);
+        if (column == null) {
+            throw new ArgumentFormatException("Unknown column " + order[0] + " of table " +
+                    metadata.getTableName());
+        }
+        if (!"asc".equals(order[1]) && !"desc".equals(order[1])) {
+            throw new ArgumentFormatException("Order must be in \"asc\" or \"desc\"");
+        }
+        return column;
+    }
+
+    private String toSql(String select, List<Object> parameters, Integer limit) throws ArgumentFormatException {
+        StringBuilder sql = new StringBuilder(select).append(" from ").append(metadata.getTableName());
+        appendWhere(sql, parameters);
+        for (int i = 0; i < orders.size(); i++) {
+            String[] order = orders.get(i);
+            ColumnMetadata column = orderColumn(order);
+            sql.append(i == 0 ? " order by " : ", ").append(column.getColumnName()).append(' ').append(order[1]);
+        }
+        if (limit != null) {
+            if (limit < 0) {
+                throw new ArgumentFormatException("Limit cannot be negative");
+            }
+            sql.append(" limit ?");
+            parameters.add(limit);
+        }
+        if (offset != null) {
+            if (offset < 0) {
+                throw new ArgumentFormatException("Offset cannot be negative");
+            }
+            sql.append(" offset ?");
+            parameters.add(offset);
+        }
+        return sql.toString();
+    }
+}
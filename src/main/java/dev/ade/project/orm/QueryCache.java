@@ -0,0 +1,212 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.util.MapperUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The QueryCache class caches the results of the filtered reads of one table,
+ * getWithCriterion and getRecordsInOrder, keyed by SQL string and bound parameters. It is
+ * enabled per table with {@link AdeOrm#enableQueryCache}. Results are kept as rows of column values
+ * and bounded by their total number of rows, least recently used results are evicted first.
+ * Every write to the table through AdeOrm drops all results and starts a new generation,
+ * so a query that was running during the write does not cache what it read.
+ */
+public class QueryCache {
+    private static final Map<String, QueryCache> TABLES = new ConcurrentHashMap<>();
+
+    private final int maxRows;
+    private final long timeToLive;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private int rowCount;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Cache key of a query, compared by the contents of array parameters such as byte[]
+     */
+    static final class Key {
+        private final Object[] parts;
+        private final int hash;
+
+        private Key(Object[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && hash == ((Key) o).hash && Arrays.deepEquals(parts, ((Key) o).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Object[]> rows;
+        private final long expiresAt;
+
+        private Entry(List<Object[]> rows, long expiresAt) {
+            this.rows = rows;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param maxRows maximum number of rows of all cached results
+     * @param timeToLive milliseconds a result stays cached, 0 for no expiry
+     */
+    QueryCache(int maxRows, long timeToLive) {
+        this.maxRows = maxRows;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * @param tableName name of a table
+     * @return the query cache of the table, or null if it is not enabled
+     */
+    static QueryCache of(String tableName) {
+        return tableName == null ? null : TABLES.get(tableName.toLowerCase());
+    }
+
+    static void enable(String tableName, QueryCache cache) {
+        TABLES.put(tableName.toLowerCase(), cache);
+    }
+
+    static void disable(String tableName) {
+        TABLES.remove(tableName.toLowerCase());
+    }
+
+    /**
+     * @param sql the SQL string of a query
+     * @param maxRows max rows option of the query, it changes the result
+     * @param parameters values bound to the query
+     * @return the cache key of the query, holding copies of mutable parameters
+     */
+    static Key key(String sql, int maxRows, Object... parameters) {
+        Object[] parts = new Object[parameters.length + 2];
+        parts[0] = sql;
+        parts[1] = maxRows;
+        for (int i = 0; i < parameters.length; i++) {
+            parts[i + 2] = MapperUtil.copyOf(parameters[i]);
+        }
+        return new Key(parts);
+    }
+
+    /**
+     * @param key cache key of the query
+     * @return the cached rows, or null on a miss
+     */
+    synchronized List<Object[]> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && timeToLive > 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            rowCount -= entry.rows.size();
+            evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.rows;
+    }
+
+    /**
+     * @return the generation to pass to put, taken before the query runs
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache the rows of a query unless the table was written since the generation was taken
+     *
+     * @param key cache key of the query
+     * @param rows column values of the result rows
+     * @param generation generation taken before the query ran
+     */
+    synchronized void put(Key key, List<Object[]> rows, long generation) {
+        if (generation != this.generation || rows.size() > maxRows) {
+            return;
+        }
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            rowCount -= previous.rows.size();
+        }
+        long expiresAt = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : Long.MAX_VALUE;
+        entries.put(key, new Entry(Collections.unmodifiableList(rows), expiresAt));
+        rowCount += rows.size();
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (rowCount > maxRows && eldest.hasNext()) {
+            rowCount -= eldest.next().getValue().rows.size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Start a new generation after a write to the table, stale results are dropped
+     */
+    synchronized void invalidate() {
+        generation++;
+        entries.clear();
+        rowCount = 0;
+    }
+
+    /**
+     * Drop every result
+     */
+    public void clear() {
+        invalidate();
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of rows of all cached results
+     */
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return number of results evicted because the cache was full or they expired
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+}
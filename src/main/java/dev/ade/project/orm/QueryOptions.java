@@ -0,0 +1,95 @@
+package dev.ade.project.orm;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * The QueryOptions class holds the result set settings applied to select statements:
+ * fetch size, maximum rows, query timeout and the read-only hint. A value of 0 keeps
+ * the driver default. Options are copied when they are given to an AdeOrm or a Query,
+ * so changing them afterwards does not affect queries already configured.
+ * <p>
+ * The fetch size only bounds the rows held by the driver when the read goes through a
+ * cursor, which the PostgreSQL driver uses only with auto-commit off: {@link Query#iterate()}
+ * and {@link Query#stream()} turn it off while they are open, and statements of a Session
+ * transaction run with it off. Every other read collects all of its records into a list and
+ * runs with auto-commit on, so there the fetch size does not limit the memory of the query.
+ */
+public class QueryOptions {
+    private int fetchSize;
+    private int maxRows;
+    private int queryTimeout;
+    private boolean readOnly;
+
+    public QueryOptions() {}
+
+    public QueryOptions(QueryOptions other) {
+        this.fetchSize = other.fetchSize;
+        this.maxRows = other.maxRows;
+        this.queryTimeout = other.queryTimeout;
+        this.readOnly = other.readOnly;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of rows the driver fetches per round trip, honored by the
+     *                  PostgreSQL driver only with auto-commit off, see the class comment
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * @param maxRows rows beyond this number are silently dropped by the driver
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * @param queryTimeout seconds a statement may run before the driver cancels it
+     */
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @param readOnly mark the connection read-only while the query runs, so the database can
+     *                 route or optimize it; not applied to the connection of a Session
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Apply the statement settings, pooled statements get their defaults back when closed
+     *
+     * @param ps statement to configure
+     */
+    void apply(PreparedStatement ps) throws SQLException {
+        if (fetchSize > 0) {
+            ps.setFetchSize(fetchSize);
+        }
+        if (maxRows > 0) {
+            ps.setMaxRows(maxRows);
+        }
+        if (queryTimeout > 0) {
+            ps.setQueryTimeout(queryTimeout);
+        }
+    }
+}
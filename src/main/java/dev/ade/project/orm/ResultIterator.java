@@ -0,0 +1,111 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.exception.DataAccessException;
+import dev.ade.project.util.MapperUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The ResultIterator class hydrates the records of a select statement one row at a time.
+ * Auto-commit is turned off and a fetch size is set while it is open, so the PostgreSQL
+ * driver reads the rows through a server-side cursor instead of buffering the whole
+ * result. The statement and connection are released when the last row has been read
+ * or when the iterator is closed, whichever comes first.
+ */
+public final class ResultIterator<T> implements Iterator<T>, AutoCloseable {
+    private final Class<T> type;
+    private final EntityMetadata metadata;
+    private final Connection conn;
+    private boolean restoreAutoCommit;
+    private PreparedStatement ps;
+    private ResultSet rs;
+    private ResultSetPlan plan;
+    private Boolean hasNext;
+    private boolean closed;
+
+    ResultIterator(Class<T> type, EntityMetadata metadata, String sql, Object[] parameters, QueryOptions options)
+            throws ArgumentFormatException {
+        this.type = type;
+        this.metadata = metadata;
+        this.conn = AdeOrm.acquire(options);
+        try {
+            if (conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            ps = AdeOrm.prepare(conn, sql, options);
+            MapperUtil.setPs(ps, parameters);
+            rs = ps.executeQuery();
+            plan = metadata.getPlan(sql, rs);
+        } catch (SQLException e) {
+            close();
+            throw new ArgumentFormatException("Argument formats are not correct", e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext == null) {
+            try {
+                hasNext = !closed && rs.next();
+            } catch (SQLException e) {
+                close();
+                throw new DataAccessException("Could not read the next record", e);
+            }
+            if (!hasNext) {
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasNext = null;
+        try {
+            T object = type.cast(metadata.newInstance());
+            plan.populate(object, rs);
+            return object;
+        } catch (ArgumentFormatException | SQLException e) {
+            close();
+            throw new DataAccessException("Could not read the next record", e);
+        }
+    }
+
+    /**
+     * Close the result set and statement, restore auto-commit and release the connection
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasNext = false;
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (ps != null) {
+                ps.close();
+            }
+            if (restoreAutoCommit) {
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            AdeOrm.release(conn);
+        }
+    }
+}
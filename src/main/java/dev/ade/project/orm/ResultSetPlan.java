@@ -0,0 +1,82 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.util.MapperUtil;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ResultSetPlan class maps the columns of a query result to the fields of a POJO by
+ * column index. It is resolved from ResultSetMetaData once and cached per SQL string in
+ * {@link EntityMetadata}, so hydrating a row never looks columns up by label.
+ */
+public final class ResultSetPlan {
+    private final ColumnMetadata[] columns;
+    private final int[] indexes;
+    private final String[] labels;
+
+    private ResultSetPlan(ColumnMetadata[] columns, int[] indexes, String[] labels) {
+        this.columns = columns;
+        this.indexes = indexes;
+        this.labels = labels;
+    }
+
+    /**
+     * Resolve the result set columns against the mapped columns of an entity
+     *
+     * @param metadata metadata of the POJO class
+     * @param md metadata of the result set
+     * @return a plan pairing each mapped column with its result set index
+     */
+    static ResultSetPlan resolve(EntityMetadata metadata, ResultSetMetaData md) throws SQLException {
+        int count = md.getColumnCount();
+        List<ColumnMetadata> columns = new ArrayList<>(count);
+        List<Integer> indexes = new ArrayList<>(count);
+        String[] labels = new String[count];
+        for (int i = 1; i <= count; i++) {
+            labels[i - 1] = md.getColumnLabel(i);
+            ColumnMetadata column = metadata.getColumnIgnoreCase(labels[i - 1]);
+            if (column != null) {
+                columns.add(column);
+                indexes.add(i);
+            }
+        }
+        int[] indexArray = new int[indexes.size()];
+        for (int i = 0; i < indexArray.length; i++) {
+            indexArray[i] = indexes.get(i);
+        }
+        return new ResultSetPlan(columns.toArray(new ColumnMetadata[0]), indexArray, labels);
+    }
+
+    /**
+     * @param md metadata of the result set
+     * @return true if the result set still has the column labels, in the same order, this
+     * plan was resolved from, as a select * returns the new columns of an altered table
+     */
+    boolean matches(ResultSetMetaData md) throws SQLException {
+        if (md.getColumnCount() != labels.length) {
+            return false;
+        }
+        for (int i = 0; i < labels.length; i++) {
+            if (!labels[i].equals(md.getColumnLabel(i + 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set every mapped field of a POJO from the current row of a result set
+     *
+     * @param object POJO to be populated
+     * @param rs result set positioned on a row
+     */
+    public void populate(Object object, ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            MapperUtil.setField(object, columns[i], rs, indexes[i]);
+        }
+    }
+}
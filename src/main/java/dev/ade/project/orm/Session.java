@@ -0,0 +1,383 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.util.BasicConnectionPoolUtil;
+import dev.ade.project.util.ConnectionUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Session class owns the connection and the transaction state of one unit of work.
+ * A session is bound to the thread that opened it until it is closed, and every AdeOrm
+ * called on that thread runs its statements on the session connection. AdeOrm instances
+ * therefore hold no connection state and one instance per entity class can be shared
+ * between threads.
+ * <pre>
+ * try (Session session = Session.open()) {
+ *     session.begin();
+ *     userOrm.add(user);
+ *     postOrm.add(post);
+ *     session.commit();
+ * }
+ * </pre>
+ * Closing a session with an uncommitted transaction rolls it back.
+ * <p>
+ * A session also keeps an identity map of the records read through AdeOrm, keyed by
+ * entity class and primary key: a record is loaded once per session, later lookups by
+ * primary key are served from memory and every read returns the same instance for it.
+ * The column values of each mapped record are kept as read, so an update only sends the
+ * columns changed since.
+ * <p>
+ * With {@link #setWriteBehind(boolean)} the add, update and delete of POJOs in a transaction
+ * are queued instead of run, see {@link UnitOfWork}. The queue is flushed as JDBC batches at
+ * commit, and before any other statement runs on the session connection so queries see the
+ * queued writes. Primary keys assigned by the database are only set once the queue is flushed.
+ */
+public class Session implements AutoCloseable {
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    private Connection connection;
+    private boolean transaction;
+    private boolean failed;
+    private boolean closed;
+    private boolean writeBehind;
+    private boolean flushing;
+    private final UnitOfWork unitOfWork = new UnitOfWork();
+    private final Map<Class<?>, Map<Object, Object>> identityMap = new HashMap<>();
+    private final Map<Object, Object[]> snapshots = new IdentityHashMap<>();
+    private final List<Runnable> completions = new ArrayList<>();
+
+    private Session() {}
+
+    /**
+     * Open a session and bind it to the current thread
+     *
+     * @return the new session
+     * @throws IllegalStateException if the thread already has an open session
+     */
+    public static Session open() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("A session is already open on this thread");
+        }
+        Session session = new Session();
+        CURRENT.set(session);
+        return session;
+    }
+
+    /**
+     * @return the session bound to the current thread, or null if there is none
+     */
+    public static Session current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Get a connection of its own for the caller, from the connection pool once it is
+     * initialized, else a new physical connection. The shared ConnectionUtil connection is
+     * never returned, so a transaction or close on one thread cannot affect another.
+     *
+     * @return Connection instance, to be closed by the caller
+     */
+    public static Connection connect() throws SQLException {
+        Connection connection = BasicConnectionPoolUtil.isInitialized() ?
+                BasicConnectionPoolUtil.getConnection() : ConnectionUtil.newConnection();
+        if (connection == null) {
+            throw new SQLException("Could not connect to the database");
+        }
+        return connection;
+    }
+
+    /**
+     * Get the connection of the session, opened on first use. A connection closed by a
+     * caller is reopened only outside a transaction.
+     *
+     * @return Connection instance, closed when the session is closed
+     * @throws SQLException if the connection was closed during the transaction, whose
+     *                      statements are then lost, so it can only be rolled back
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Session is closed");
+        }
+        if (transaction && connection != null && connection.isClosed()) {
+            failed = true;
+            throw new SQLException("The session connection was closed during the transaction");
+        }
+        if (connection == null || connection.isClosed()) {
+            connection = connect();
+            connection.setAutoCommit(!transaction);
+        }
+        // statements must run after the writes queued before them
+        flush();
+        return connection;
+    }
+
+    boolean owns(Connection connection) {
+        return connection != null && connection == this.connection;
+    }
+
+    /**
+     * Start a transaction, statements run until commit or rollback are not auto-committed
+     */
+    public void begin() throws SQLException {
+        transaction = true;
+        failed = false;
+        if (connection != null && !connection.isClosed()) {
+            connection.setAutoCommit(false);
+        }
+    }
+
+    /**
+     * Commit the transaction
+     *
+     * @throws ArgumentFormatException if a statement of the transaction did not affect the
+     *                                 expected records, the transaction is left open to be rolled back
+     */
+    public void commit() throws ArgumentFormatException {
+        if (!transaction) {
+            throw new ArgumentFormatException("No transaction in progress");
+        }
+        try {
+            flush();
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("The queued writes could not be flushed", e);
+        }
+        if (failed) {
+            throw new ArgumentFormatException("A statement of the transaction did not complete");
+        }
+        try {
+            if (connection != null && connection.isClosed()) {
+                failed = true;
+                throw new ArgumentFormatException("The session connection was closed during the transaction");
+            }
+            if (connection != null) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new ArgumentFormatException("The transaction could not be committed", e);
+        }
+        transaction = false;
+        complete();
+    }
+
+    /**
+     * Roll back the transaction
+     */
+    public void rollback() {
+        unitOfWork.clear();
+        try {
+            if (transaction && connection != null && !connection.isClosed()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        transaction = false;
+        failed = false;
+        // mapped records may hold values that were rolled back
+        clear();
+        complete();
+    }
+
+    /**
+     * Queue the writes of POJOs in transactions until commit, see {@link UnitOfWork}
+     *
+     * @param writeBehind true to queue writes, false to run them as they are made
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Queue the write of a POJO if the session has a write-behind transaction
+     *
+     * @param orm the AdeOrm of the POJO class
+     * @param kind the statement to run
+     * @param pojo POJO to be written
+     * @return true if the write was queued, false if it is to be run now
+     */
+    boolean enqueue(AdeOrm<?> orm, UnitOfWork.Kind kind, Object pojo) throws SQLException {
+        if (!writeBehind || !transaction || closed) {
+            return false;
+        }
+        if (!unitOfWork.add(orm, kind, pojo)) {
+            // a write after the delete of the same POJO runs after it
+            flush();
+            unitOfWork.add(orm, kind, pojo);
+        }
+        return true;
+    }
+
+    /**
+     * Run the queued writes of the transaction as JDBC batches
+     *
+     * @throws SQLException if a batch fails, the transaction can then only be rolled back
+     */
+    public void flush() throws SQLException {
+        if (flushing || unitOfWork.isEmpty()) {
+            return;
+        }
+        flushing = true;
+        try {
+            unitOfWork.flush(getConnection());
+        } catch (SQLException e) {
+            failed = true;
+            throw e;
+        } finally {
+            flushing = false;
+        }
+    }
+
+    /**
+     * Run an action once the transaction is committed or rolled back
+     *
+     * @param action e.g. dropping the records written by the transaction from a cache again
+     */
+    void afterCompletion(Runnable action) {
+        completions.add(action);
+    }
+
+    private void complete() {
+        for (Runnable action : completions) {
+            action.run();
+        }
+        completions.clear();
+    }
+
+    /**
+     * Record that a statement did not affect the expected records, so the transaction
+     * cannot be committed
+     */
+    void markFailed() {
+        if (transaction) {
+            failed = true;
+        }
+    }
+
+    public boolean isTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Get a record of the identity map
+     *
+     * @param entityClass the class of a POJO class
+     * @param id primary key value
+     * @return the mapped record, or null if it has not been read in this session
+     */
+    Object lookup(Class<?> entityClass, Object id) {
+        Map<Object, Object> entities = identityMap.get(entityClass);
+        return entities == null ? null : entities.get(id);
+    }
+
+    /**
+     * Map a record that has just been read, unless the session already holds one for its key
+     *
+     * @param entityClass the class of a POJO class
+     * @param id primary key value
+     * @param entity the record read
+     * @return the instance mapped for the key, the one already held if any
+     */
+    Object register(Class<?> entityClass, Object id, Object entity) {
+        if (id == null) {
+            return entity;
+        }
+        Object mapped = identityMap.computeIfAbsent(entityClass, k -> new HashMap<>()).putIfAbsent(id, entity);
+        return mapped != null ? mapped : entity;
+    }
+
+    /**
+     * Map a record that has just been written, replacing the instance held for its key
+     *
+     * @param entityClass the class of a POJO class
+     * @param id primary key value
+     * @param entity the record written
+     */
+    void replace(Class<?> entityClass, Object id, Object entity) {
+        if (id != null) {
+            snapshots.remove(identityMap.computeIfAbsent(entityClass, k -> new HashMap<>()).put(id, entity));
+        }
+    }
+
+    /**
+     * Remove a record from the identity map
+     *
+     * @param entityClass the class of a POJO class
+     * @param id primary key value, null to remove every record of the class
+     */
+    void evict(Class<?> entityClass, Object id) {
+        Map<Object, Object> entities = identityMap.get(entityClass);
+        if (entities == null) {
+            return;
+        }
+        if (id == null) {
+            entities.values().forEach(snapshots::remove);
+            identityMap.remove(entityClass);
+        } else {
+            snapshots.remove(entities.remove(id));
+        }
+    }
+
+    /**
+     * Keep the column values of a mapped record as they are in the database
+     *
+     * @param entity a record of the identity map
+     * @param values its column values, in the order of the entity columns
+     */
+    void snapshot(Object entity, Object[] values) {
+        snapshots.put(entity, values);
+    }
+
+    /**
+     * @param entity a record
+     * @return its column values as last read or written, or null if it is not mapped
+     */
+    Object[] getSnapshot(Object entity) {
+        return snapshots.get(entity);
+    }
+
+    /**
+     * Empty the identity map, so the next reads load fresh records from the database
+     */
+    public void clear() {
+        identityMap.clear();
+        snapshots.clear();
+    }
+
+    /**
+     * Roll back an uncommitted transaction, close the connection and unbind the session
+     * from its thread
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        rollback();
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            connection = null;
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+        }
+    }
+}
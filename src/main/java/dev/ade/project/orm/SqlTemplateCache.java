@@ -0,0 +1,155 @@
+package dev.ade.project.orm;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The SqlTemplateCache class holds the SQL strings of the fixed-shape statements of one
+ * entity, keyed by operation. Templates are built once from {@link EntityMetadata}
+ * together with the columns bound to their parameters, so write paths and primary key
+ * lookups do not concatenate SQL on every call.
+ */
+public final class SqlTemplateCache {
+    private static final int MAX_CACHED_UPDATES = 256;
+
+    public enum Operation {
+        INSERT,
+        INSERT_WITHOUT_PK,
+        UPDATE_BY_PK,
+        DELETE_BY_PK,
+        SELECT_ALL
+    }
+
+    private final EntityMetadata metadata;
+    private final Map<Operation, String> templates = new EnumMap<>(Operation.class);
+    private final Map<Operation, List<ColumnMetadata>> parameters = new EnumMap<>(Operation.class);
+    private final Map<String, String> selectByColumn = new ConcurrentHashMap<>();
+    private final Map<Integer, String> deleteByPkIn = new ConcurrentHashMap<>();
+    private final Map<BitSet, String> updateByColumns = new ConcurrentHashMap<>();
+
+    SqlTemplateCache(EntityMetadata metadata) {
+        this.metadata = metadata;
+        String tableName = metadata.getTableName();
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        List<ColumnMetadata> columns = metadata.getColumns();
+        List<ColumnMetadata> nonPkColumns = columns.stream()
+                .filter(c -> !c.isPrimaryKey())
+                .collect(Collectors.toList());
+
+        put(Operation.INSERT, insert(tableName, columns), columns);
+        put(Operation.INSERT_WITHOUT_PK, insert(tableName, nonPkColumns), nonPkColumns);
+        put(Operation.SELECT_ALL, "select * from " + tableName, Collections.emptyList());
+        if (pk != null) {
+            List<ColumnMetadata> updateColumns = new ArrayList<>(nonPkColumns);
+            updateColumns.add(pk);
+            put(Operation.UPDATE_BY_PK, "update " + tableName + " set " + nonPkColumns.stream()
+                    .map(c -> c.getColumnName() + " = ?")
+                    .collect(Collectors.joining(", ")) + " where " + pk.getColumnName() + " = ?", updateColumns);
+            put(Operation.DELETE_BY_PK, "delete from " + tableName + " where " + pk.getColumnName() + " = ?",
+                    Collections.singletonList(pk));
+        }
+    }
+
+    private static String insert(String tableName, List<ColumnMetadata> columns) {
+        return "insert into " + tableName +
+                columns.stream().map(ColumnMetadata::getColumnName).collect(Collectors.joining(", ", " (", ")")) +
+                columns.stream().map(c -> "?").collect(Collectors.joining(", ", " values (", ")"));
+    }
+
+    private void put(Operation operation, String sql, List<ColumnMetadata> columns) {
+        templates.put(operation, sql);
+        parameters.put(operation, Collections.unmodifiableList(columns));
+    }
+
+    /**
+     * Get the SQL string of an operation
+     *
+     * @param operation statement kind
+     * @return the SQL, or null if the entity cannot support it (e.g. no primary key)
+     */
+    public String get(Operation operation) {
+        return templates.get(operation);
+    }
+
+    /**
+     * @param operation statement kind
+     * @return the columns bound to the statement parameters, in parameter order
+     */
+    public List<ColumnMetadata> getParameters(Operation operation) {
+        List<ColumnMetadata> columns = parameters.get(operation);
+        return columns == null ? Collections.emptyList() : columns;
+    }
+
+    /**
+     * Extract the parameter values of an operation from a POJO
+     *
+     * @param operation statement kind
+     * @param pojo the POJO supplying the values
+     * @return values in parameter order
+     */
+    public Object[] getValues(Operation operation, Object pojo) {
+        List<ColumnMetadata> columns = getParameters(operation);
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns.get(i).getValue(pojo);
+        }
+        return values;
+    }
+
+    /**
+     * Get the SQL string selecting every column of the records matching one column
+     *
+     * @param columnName the column used as filter
+     * @return "select * from table where column=?"
+     */
+    public String selectBy(String columnName) {
+        return selectByColumn.computeIfAbsent(columnName,
+                c -> "select * from " + metadata.getTableName() + " where " + c + "=?");
+    }
+
+    /**
+     * Get the SQL string deleting the records whose primary key is in a list
+     *
+     * @param size number of primary keys in the list
+     * @return "delete from table where pk in (?, ...)", or null if the entity has no primary key
+     */
+    public String deleteByPkIn(int size) {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null || size < 1) {
+            return null;
+        }
+        return deleteByPkIn.computeIfAbsent(size, n -> "delete from " + metadata.getTableName() + " where " +
+                pk.getColumnName() + " in " + Collections.nCopies(n, "?").stream()
+                .collect(Collectors.joining(", ", "(", ")")));
+    }
+
+    /**
+     * Get the SQL string updating some columns of a record by primary key
+     *
+     * @param columns indexes in the entity columns of the columns to be set
+     * @return "update table set column=?, ... where pk=?", or null if the entity has no primary key
+     */
+    public String updateColumns(BitSet columns) {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null || columns.isEmpty()) {
+            return null;
+        }
+        String sql = updateByColumns.get(columns);
+        if (sql == null) {
+            List<ColumnMetadata> all = metadata.getColumns();
+            sql = "update " + metadata.getTableName() + " set " + columns.stream()
+                    .mapToObj(i -> all.get(i).getColumnName() + " = ?")
+                    .collect(Collectors.joining(", ")) + " where " + pk.getColumnName() + " = ?";
+            if (updateByColumns.size() < MAX_CACHED_UPDATES) {
+                updateByColumns.put((BitSet) columns.clone(), sql);
+            }
+        }
+        return sql;
+    }
+}
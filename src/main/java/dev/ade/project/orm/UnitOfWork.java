@@ -0,0 +1,178 @@
+package dev.ade.project.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The UnitOfWork class holds the writes a write-behind {@link Session} queued during its
+ * transaction. Repeated writes of the same record are coalesced into one, and at flush the
+ * writes are sent as JDBC batches: inserts first with referenced tables before the tables
+ * referencing them, then updates, then deletes with referencing tables first, so
+ * {@code @ForeignKey} constraints hold after every statement. Writes of the same table are
+ * sent together whatever order they were made in, so each table takes one batch per statement.
+ */
+final class UnitOfWork {
+    enum Kind { INSERT, UPDATE, DELETE }
+
+    private final List<Write> writes = new ArrayList<>();
+    private final Map<List<Object>, Write> byKey = new HashMap<>();
+    private final Map<Object, Write> byPojo = new IdentityHashMap<>();
+
+    private static final class Write {
+        private final AdeOrm<?> orm;
+        private final Object pojo;
+        private Kind kind;
+
+        private Write(AdeOrm<?> orm, Kind kind, Object pojo) {
+            this.orm = orm;
+            this.kind = kind;
+            this.pojo = pojo;
+        }
+    }
+
+    /**
+     * Queue a write, merging it with the write already queued for the same record, the same
+     * entity class and primary key, or the same POJO while its primary key is not set: the
+     * values of a POJO are read at flush, so an update of a queued insert or update is
+     * dropped and a delete replaces them, a delete of a queued insert drops both.
+     *
+     * @param orm the AdeOrm of the POJO class
+     * @param kind the statement to run
+     * @param pojo the POJO to be written
+     * @return false if the record already has a queued delete or a write from another POJO,
+     * the queue must be flushed first so the writes run in the order they were made
+     */
+    boolean add(AdeOrm<?> orm, Kind kind, Object pojo) {
+        List<Object> key = keyOf(orm.getMetadata(), pojo);
+        Write queued = key != null ? byKey.get(key) : byPojo.get(pojo);
+        if (queued == null) {
+            Write write = new Write(orm, kind, pojo);
+            writes.add(write);
+            if (key != null) {
+                byKey.put(key, write);
+            } else {
+                byPojo.put(pojo, write);
+            }
+            return true;
+        }
+        if (queued.pojo != pojo || queued.kind == Kind.DELETE) {
+            return false;
+        }
+        if (kind == Kind.DELETE) {
+            if (queued.kind == Kind.INSERT) {
+                writes.remove(queued);
+                if (key != null) {
+                    byKey.remove(key);
+                } else {
+                    byPojo.remove(pojo);
+                }
+            } else {
+                queued.kind = Kind.DELETE;
+            }
+        } else if (kind == Kind.INSERT) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the entity class and primary key of the record, or null if the primary key
+     * is not set, as for an int key of 0 the database assigns on insert
+     */
+    private static List<Object> keyOf(EntityMetadata metadata, Object pojo) {
+        ColumnMetadata pk = metadata.getPrimaryKey();
+        if (pk == null || !pk.getAccessor().isReadable()) {
+            return null;
+        }
+        Object id = pk.getValue(pojo);
+        if (id == null || (pk.getType() == int.class && (Integer) id == 0)) {
+            return null;
+        }
+        return Arrays.asList(metadata.getEntityClass(), id);
+    }
+
+    boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    void clear() {
+        writes.clear();
+        byKey.clear();
+        byPojo.clear();
+    }
+
+    /**
+     * Send the queued writes in dependency order, one batch per run of writes with the same
+     * entity class and statement, and empty the queue
+     *
+     * @param conn connection of the Session
+     */
+    void flush(Connection conn) throws SQLException {
+        List<Write> ordered = new ArrayList<>(writes);
+        clear();
+        Map<String, EntityMetadata> tables = new HashMap<>();
+        for (Write write : ordered) {
+            tables.put(tableOf(write.orm.getMetadata()), write.orm.getMetadata());
+        }
+        Map<String, Integer> depths = new HashMap<>();
+        for (String table : tables.keySet()) {
+            depth(table, tables, depths, 0);
+        }
+        // the sort is stable, writes of one table keep the order they were made in
+        ordered.sort(Comparator.comparingInt((Write write) -> write.kind.ordinal())
+                .thenComparingInt(write -> {
+                    int depth = depths.get(tableOf(write.orm.getMetadata()));
+                    return write.kind == Kind.DELETE ? -depth : depth;
+                })
+                .thenComparing(write -> tableOf(write.orm.getMetadata()))
+                .thenComparing(write -> write.orm.getMetadata().getEntityClass().getName()));
+        int start = 0;
+        for (int i = 1; i <= ordered.size(); i++) {
+            Write first = ordered.get(start);
+            if (i == ordered.size() || ordered.get(i).orm.getMetadata() != first.orm.getMetadata() ||
+                    ordered.get(i).kind != first.kind) {
+                List<Object> pojos = new ArrayList<>(i - start);
+                for (Write write : ordered.subList(start, i)) {
+                    pojos.add(write.pojo);
+                }
+                first.orm.flush(conn, first.kind, pojos);
+                start = i;
+            }
+        }
+    }
+
+    private static String tableOf(EntityMetadata metadata) {
+        return String.valueOf(metadata.getTableName()).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return 0 for a table referencing none of the tables written, else one more than
+     * the deepest table it references
+     */
+    private static int depth(String table, Map<String, EntityMetadata> tables, Map<String, Integer> depths,
+                             int level) {
+        Integer known = depths.get(table);
+        if (known != null) {
+            return known;
+        }
+        int depth = 0;
+        // a cycle of references cannot be ordered, it is cut once it is longer than the tables
+        if (level < tables.size()) {
+            for (String referenced : tables.get(table).getReferencedTables()) {
+                if (!referenced.equals(table) && tables.containsKey(referenced)) {
+                    depth = Math.max(depth, depth(referenced, tables, depths, level + 1) + 1);
+                }
+            }
+        }
+        depths.put(table, depth);
+        return depth;
+    }
+}
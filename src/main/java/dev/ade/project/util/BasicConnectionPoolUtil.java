@@ -5,73 +5,151 @@ import dev.ade.project.exception.ArgumentFormatException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The BasicConnectionPoolUtil class gives static access to the process-wide
+ * {@link BoundedConnectionPool} used by AdeOrm.
+ */
 public class BasicConnectionPoolUtil {
 
-    private static String url;
-    private static final String password = System.getenv("PASSWORD");
-    private static final String username = System.getenv("USERNAME");
-    private static List<Connection> connectionPool;
-    private static final List<Connection> usedConnections = new ArrayList<>();
+    private static volatile BoundedConnectionPool pool;
+    private static int statementCacheSize = 64;
 
     private static final boolean IS_TEST = Boolean.parseBoolean(System.getenv("TEST"));
 
 
-    public BasicConnectionPoolUtil(String url, List<Connection> pool) {
-        BasicConnectionPoolUtil.url = url;
-        BasicConnectionPoolUtil.connectionPool = pool;
+    /**
+     * Replace the pool with one holding already opened connections
+     *
+     * @param url jdbc driver + db_endpoint + schema_name, used to open more connections
+     * @param connections open connections handed over to the pool
+     */
+    public BasicConnectionPoolUtil(String url, List<Connection> connections)
+            throws SQLException, ArgumentFormatException {
+        PoolConfig config = new PoolConfig(url, connections.size());
+        config.setMinSize(connections.size());
+        config.setStatementCacheSize(statementCacheSize);
+        replace(new BoundedConnectionPool(config, connections));
     }
 
+    /**
+     * Replace the pool with a fixed size one
+     *
+     * @param url jdbc driver + db_endpoint + schema_name
+     * @param poolSize number of connections kept open
+     * @return 0 for fail, 1 for success
+     */
     public static int initialize(String url, int poolSize) throws SQLException, ArgumentFormatException {
         if (url == null || poolSize < 1) {
             throw new ArgumentFormatException();
         }
-        BasicConnectionPoolUtil.url = url;
-        connectionPool = new ArrayList<>(poolSize);
+        PoolConfig config = new PoolConfig(url, poolSize);
+        config.setMinSize(poolSize);
+        config.setStatementCacheSize(statementCacheSize);
+        return initialize(config);
+    }
 
-        for(int i = 0; i < poolSize; i++){
-            connectionPool.add(createConnection());
+    /**
+     * Replace the pool with one built from the given settings
+     *
+     * @param config pool settings
+     * @return 0 for fail, 1 for success
+     */
+    public static int initialize(PoolConfig config) throws SQLException, ArgumentFormatException {
+        if (config == null || config.getUrl() == null) {
+            throw new ArgumentFormatException();
         }
+        replace(new BoundedConnectionPool(config));
         return 1;
     }
 
-    public static Connection getConnection() {
-        Connection connection = null;
-        if (IS_TEST) {
-            try {
-                connection = DriverManager.getConnection("jdbc:h2:~/test");
-            } catch (SQLException throwables) {
-                throwables.printStackTrace();
-            }
-        } else {
-            connection = connectionPool.remove(connectionPool.size() - 1);
-            usedConnections.add(connection);
+    private static synchronized void replace(BoundedConnectionPool newPool) {
+        BoundedConnectionPool old = pool;
+        pool = newPool;
+        if (old != null) {
+            old.shutdown();
         }
-        return connection;
     }
 
-    public static boolean releaseConnection(Connection connection) {
-        if (connection != null) {
-            connectionPool.add(connection);
+    /**
+     * Set how many prepared statements each pooled connection keeps open for reuse.
+     * Applies to pools initialized after the call, 0 disables statement caching.
+     *
+     * @param size maximum number of cached statements per connection
+     * @return 0 for fail, 1 for success
+     */
+    public static int setStatementCacheSize(int size) {
+        if (size < 0) {
+            return 0;
         }
-        return usedConnections.remove(connection);
+        statementCacheSize = size;
+        return 1;
     }
 
-    private static Connection createConnection() throws SQLException {
-        return DriverManager.getConnection(url,username,password);
+    /**
+     * @return true if a pool has been initialized and not shut down
+     */
+    public static boolean isInitialized() {
+        return pool != null;
     }
 
-    public static void shutdown() throws SQLException {
-        usedConnections.forEach(BasicConnectionPoolUtil::releaseConnection);
-        for (Connection c : connectionPool){
-            c.close();
+    /**
+     * Get a connection from the pool, waiting up to the acquire timeout when all connections
+     * are in use. Closing the returned connection, or passing it to releaseConnection,
+     * gives it back to the pool.
+     *
+     * @return Connection instance
+     */
+    public static Connection getConnection() throws SQLException {
+        if (IS_TEST) {
+            return DriverManager.getConnection("jdbc:h2:~/test");
+        }
+        BoundedConnectionPool current = pool;
+        if (current == null) {
+            throw new SQLException("Connection pool is not initialized");
+        }
+        return current.getConnection();
+    }
+
+    public static boolean releaseConnection(Connection connection) {
+        BoundedConnectionPool current = pool;
+        return current != null && current.releaseConnection(connection);
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
         }
     }
 
     public static int getSize(){
-        return connectionPool.size() + usedConnections.size();
+        BoundedConnectionPool current = pool;
+        return current == null ? 0 : current.getSize();
+    }
+
+    /**
+     * @return the pool behind the static methods, or null if it is not initialized
+     */
+    public static BoundedConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return number of prepareStatement calls served from the statement caches
+     */
+    public static long getStatementCacheHits() {
+        BoundedConnectionPool current = pool;
+        return current == null ? 0 : current.getStatementCacheHits();
+    }
+
+    /**
+     * @return number of prepareStatement calls that had to prepare a new statement
+     */
+    public static long getStatementCacheMisses() {
+        BoundedConnectionPool current = pool;
+        return current == null ? 0 : current.getStatementCacheMisses();
     }
 
 }
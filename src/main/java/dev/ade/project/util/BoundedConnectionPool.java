@@ -0,0 +1,507 @@
+package dev.ade.project.util;
+
+import dev.ade.project.exception.ArgumentFormatException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The BoundedConnectionPool class is a thread-safe connection pool with a minimum and
+ * maximum size. Borrowers wait in FIFO order on a fair semaphore holding one permit per
+ * connection that may be open, so handoff stays fair under contention; idle connections
+ * sit in a concurrent deque and the most recently returned one is reused first.
+ * A background task closes connections idle for too long or past their max lifetime
+ * and refills the pool up to its minimum size.
+ * <p>
+ * Connections are checked on borrow unless they were returned within the validation skip
+ * window, and idle ones are kept alive by the background task. When a borrowed connection
+ * turns out broken, e.g. after a database failover, every idle connection is checked at once
+ * so the rest of the broken ones are replaced before they are handed out.
+ * <p>
+ * Counters and latency histograms are kept in {@link PoolMetrics}, optionally registered
+ * as a JMX MBean named dev.ade.project:type=ConnectionPool,name="poolName".
+ * With a leak detection threshold set, the background task also reports connections
+ * borrowed for longer, with the borrowing stack trace for a sample of the borrows.
+ */
+public class BoundedConnectionPool implements ConnectionPool {
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final Set<PooledConnection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong retiredHits = new AtomicLong();
+    private final AtomicLong retiredMisses = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private final PoolMetrics metrics = new PoolMetrics(this);
+    private final AtomicLong borrows = new AtomicLong();
+    private ObjectName mbeanName;
+    private volatile boolean closed;
+
+    /**
+     * Create a pool and open its minimum number of connections
+     *
+     * @param config pool settings
+     */
+    public BoundedConnectionPool(PoolConfig config) throws SQLException, ArgumentFormatException {
+        this(config, Collections.emptyList());
+    }
+
+    /**
+     * Create a pool seeded with already opened connections
+     *
+     * @param config pool settings
+     * @param connections open connections handed over to the pool, closed if the pool
+     *                    cannot open its minimum number of connections
+     */
+    public BoundedConnectionPool(PoolConfig config, Collection<Connection> connections)
+            throws SQLException, ArgumentFormatException {
+        if (config == null || config.getMaxSize() < 1 || config.getMinSize() < 0 ||
+                config.getMinSize() > config.getMaxSize() || connections.size() > config.getMaxSize()) {
+            throw new ArgumentFormatException("Pool sizes are not correct");
+        }
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "adeOrm-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Connection connection : connections) {
+            total.incrementAndGet();
+            idle.offerLast(pooled(connection));
+        }
+        try {
+            fill();
+        } catch (SQLException | RuntimeException e) {
+            // the pool is never handed out, nothing else could close what it opened
+            shutdown();
+            throw e;
+        }
+        long period = config.getHousekeepingPeriod();
+        if (period > 0) {
+            housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+        }
+        if (config.isRegisterMbean()) {
+            registerMbean();
+        }
+    }
+
+    private void registerMbean() {
+        try {
+            mbeanName = new ObjectName("dev.ade.project:type=ConnectionPool,name=" +
+                    ObjectName.quote(config.getPoolName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, mbeanName);
+        } catch (JMException e) {
+            mbeanName = null;
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get a connection, waiting up to the acquire timeout when all connections are in use.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return Connection instance
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is shut down");
+        }
+        long start = System.nanoTime();
+        long deadline = System.currentTimeMillis() + config.getAcquireTimeout();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+                throw timeout();
+            }
+            Connection connection;
+            try {
+                PooledConnection pooled = take(deadline);
+                if (config.getLeakDetectionThreshold() > 0) {
+                    pooled.markBorrowed(sampleTrace());
+                }
+                connection = pooled.borrow();
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            metrics.recordAcquire(System.nanoTime() - start);
+            return connection;
+        } catch (SQLTimeoutException e) {
+            metrics.recordTimeout(System.nanoTime() - start);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private Throwable sampleTrace() {
+        int rate = config.getLeakTraceSampleRate();
+        if (rate <= 0 || borrows.incrementAndGet() % rate != 0) {
+            return null;
+        }
+        return new Throwable("Connection borrowed here");
+    }
+
+    /**
+     * Take an idle connection, or open a new one while the pool is below its maximum size.
+     * The caller already holds a permit, so waiting here only covers a connection that is
+     * being handed back or opened by the housekeeper at the same moment.
+     */
+    private PooledConnection take(long deadline) throws SQLException, InterruptedException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null && reserve()) {
+                try {
+                    return pooled(createConnection());
+                } catch (SQLException e) {
+                    total.decrementAndGet();
+                    throw e;
+                }
+            }
+            if (pooled == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                pooled = idle.pollFirst(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+                if (pooled == null) {
+                    throw timeout();
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (isExpired(pooled, now)) {
+                retire(pooled);
+            } else if (now - pooled.getLastCheckedAt() < config.getValidationSkipWindow() || isValid(pooled)) {
+                return pooled;
+            } else {
+                retire(pooled);
+                evictBroken();
+            }
+        }
+    }
+
+    /**
+     * Check a connection with the test query, or Connection.isValid when none is set
+     *
+     * @return true if the connection answered within the validation timeout
+     */
+    private boolean isValid(PooledConnection pooled) {
+        if (config.getValidationTimeout() <= 0) {
+            return true;
+        }
+        int seconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(config.getValidationTimeout()));
+        Connection physical = pooled.getPhysicalConnection();
+        try {
+            if (config.getTestQuery() == null) {
+                return physical.isValid(seconds);
+            }
+            try (Statement statement = physical.createStatement()) {
+                statement.setQueryTimeout(seconds);
+                statement.execute(config.getTestQuery());
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ask the background task to check every idle connection now
+     */
+    private void evictBroken() {
+        if (!closed) {
+            try {
+                housekeeper.execute(() -> keepAlive(0));
+            } catch (RejectedExecutionException e) {
+                // the pool is shutting down
+            }
+        }
+    }
+
+    /**
+     * Check idle connections not used or checked for longer than the given time, closing the
+     * broken ones and refilling the pool up to its minimum size
+     *
+     * @param unusedFor minimum time in milliseconds since the connection was last known working
+     */
+    void keepAlive(long unusedFor) {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : new ArrayList<>(idle)) {
+            if (now - pooled.getLastCheckedAt() < unusedFor || !idle.removeFirstOccurrence(pooled)) {
+                continue;
+            }
+            if (isValid(pooled)) {
+                pooled.markChecked();
+                idle.offerLast(pooled);
+            } else {
+                retire(pooled);
+            }
+        }
+        try {
+            fill();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Count a new connection if the pool is below its maximum size
+     *
+     * @return true if the caller may open a connection
+     */
+    private boolean reserve() {
+        int current;
+        while ((current = total.get()) < config.getMaxSize()) {
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SQLTimeoutException timeout() {
+        return new SQLTimeoutException("Timed out after " + config.getAcquireTimeout() +
+                "ms waiting for a connection");
+    }
+
+    /**
+     * Give a connection back to the pool, same as closing it
+     *
+     * @param connection a connection returned by getConnection
+     * @return true if the connection belonged to the pool and was still borrowed
+     */
+    @Override
+    public boolean releaseConnection(Connection connection) {
+        PooledConnection pooled = PooledConnection.from(connection);
+        if (pooled == null) {
+            return false;
+        }
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            connection.close();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        pooled.markReturned();
+        try {
+            pooled.reset();
+            pooled.touch();
+            if (closed || isExpired(pooled, pooled.getLastUsedAt())) {
+                retire(pooled);
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            retire(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return config.getMaxLifetime() > 0 && now - pooled.getCreatedAt() >= config.getMaxLifetime();
+    }
+
+    private void retire(PooledConnection pooled) {
+        total.decrementAndGet();
+        connections.remove(pooled);
+        retiredHits.addAndGet(pooled.getStatementCache().getHits());
+        retiredMisses.addAndGet(pooled.getStatementCache().getMisses());
+        pooled.closePhysically();
+        metrics.recordRetire();
+    }
+
+    /**
+     * Close idle connections past the idle timeout or max lifetime, check the ones unused for
+     * longer than the keep-alive time, then refill to the minimum size
+     */
+    void housekeep() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : new ArrayList<>(idle)) {
+            boolean idleTooLong = config.getIdleTimeout() > 0 && total.get() > config.getMinSize() &&
+                    now - pooled.getLastUsedAt() >= config.getIdleTimeout();
+            if ((idleTooLong || isExpired(pooled, now)) && idle.removeFirstOccurrence(pooled)) {
+                retire(pooled);
+            }
+        }
+        if (config.getLeakDetectionThreshold() > 0) {
+            detectLeaks();
+        }
+        if (config.getKeepAliveTime() > 0) {
+            keepAlive(config.getKeepAliveTime());
+        } else {
+            try {
+                fill();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Log and count connections held past the leak detection threshold, once per borrow
+     */
+    void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : connections) {
+            ConnectionLeak leak = pooled.getLeak(config.getLeakDetectionThreshold(), now);
+            if (leak != null && pooled.flagLeak()) {
+                Log4j.getLogger().warn("Possible connection leak: " + leak);
+                metrics.recordLeak(leak);
+            }
+        }
+    }
+
+    /**
+     * Get the borrowed connections currently held past the leak detection threshold
+     *
+     * @return suspected leaks, empty when leak detection is off
+     */
+    public List<ConnectionLeak> getLeaks() {
+        List<ConnectionLeak> leaks = new ArrayList<>();
+        if (config.getLeakDetectionThreshold() <= 0) {
+            return leaks;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : connections) {
+            ConnectionLeak leak = pooled.getLeak(config.getLeakDetectionThreshold(), now);
+            if (leak != null) {
+                leaks.add(leak);
+            }
+        }
+        return leaks;
+    }
+
+    private void fill() throws SQLException {
+        int current;
+        while (!closed && (current = total.get()) < config.getMinSize()) {
+            if (!total.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            try {
+                idle.offerLast(pooled(createConnection()));
+            } catch (SQLException e) {
+                total.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    private PooledConnection pooled(Connection connection) {
+        PooledConnection pooled = new PooledConnection(connection, config.getStatementCacheSize(), this::release);
+        connections.add(pooled);
+        return pooled;
+    }
+
+    private Connection createConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = DriverManager.getConnection(config.getUrl(), config.getUsername(),
+                config.getPassword());
+        metrics.recordCreate(System.nanoTime() - start);
+        return connection;
+    }
+
+    /**
+     * Stop housekeeping and close idle connections, borrowed connections are closed when returned
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+            mbeanName = null;
+        }
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            retire(pooled);
+        }
+    }
+
+    /**
+     * @return number of open connections, idle or borrowed
+     */
+    public int getSize() {
+        return total.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return config.getMaxSize() - permits.availablePermits();
+    }
+
+    /**
+     * @return number of threads waiting for a connection
+     */
+    public int getPendingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return counters and latency histograms of the pool, also used to add listeners
+     */
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return number of prepareStatement calls served from the statement caches
+     */
+    public long getStatementCacheHits() {
+        long hits = retiredHits.get();
+        for (PooledConnection pooled : connections) {
+            hits += pooled.getStatementCache().getHits();
+        }
+        return hits;
+    }
+
+    /**
+     * @return number of prepareStatement calls that had to prepare a new statement
+     */
+    public long getStatementCacheMisses() {
+        long misses = retiredMisses.get();
+        for (PooledConnection pooled : connections) {
+            misses += pooled.getStatementCache().getMisses();
+        }
+        return misses;
+    }
+}
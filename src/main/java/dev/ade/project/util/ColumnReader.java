@@ -0,0 +1,21 @@
+package dev.ade.project.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A ColumnReader reads one column of the current row with the getter that
+ * matches the Java type of the mapped field, so no intermediate String is built.
+ */
+@FunctionalInterface
+public interface ColumnReader {
+
+    /**
+     * Read a column value of the current row
+     *
+     * @param rs result set positioned on a row
+     * @param columnIndex 1-based index of the column
+     * @return the column value, or null for SQL NULL
+     */
+    Object read(ResultSet rs, int columnIndex) throws SQLException;
+}
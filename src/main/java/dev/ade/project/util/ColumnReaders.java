@@ -0,0 +1,108 @@
+package dev.ade.project.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The ColumnReaders class chooses a typed {@link ColumnReader} for a field type.
+ * Readers are picked once when entity metadata is built; primitive readers
+ * check wasNull so SQL NULL leaves the field at its default value.
+ */
+public class ColumnReaders {
+    private static final Map<Class<?>, ColumnReader> READERS = new HashMap<>();
+
+    static {
+        ColumnReader booleanReader = (rs, i) -> {
+            boolean value = rs.getBoolean(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader byteReader = (rs, i) -> {
+            byte value = rs.getByte(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader shortReader = (rs, i) -> {
+            short value = rs.getShort(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader intReader = (rs, i) -> {
+            int value = rs.getInt(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader longReader = (rs, i) -> {
+            long value = rs.getLong(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader floatReader = (rs, i) -> {
+            float value = rs.getFloat(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader doubleReader = (rs, i) -> {
+            double value = rs.getDouble(i);
+            return rs.wasNull() ? null : value;
+        };
+        ColumnReader charReader = (rs, i) -> {
+            String value = rs.getString(i);
+            return value == null || value.isEmpty() ? null : value.charAt(0);
+        };
+
+        READERS.put(boolean.class, booleanReader);
+        READERS.put(Boolean.class, booleanReader);
+        READERS.put(byte.class, byteReader);
+        READERS.put(Byte.class, byteReader);
+        READERS.put(short.class, shortReader);
+        READERS.put(Short.class, shortReader);
+        READERS.put(int.class, intReader);
+        READERS.put(Integer.class, intReader);
+        READERS.put(long.class, longReader);
+        READERS.put(Long.class, longReader);
+        READERS.put(float.class, floatReader);
+        READERS.put(Float.class, floatReader);
+        READERS.put(double.class, doubleReader);
+        READERS.put(Double.class, doubleReader);
+        READERS.put(char.class, charReader);
+        READERS.put(Character.class, charReader);
+        READERS.put(String.class, (rs, i) -> rs.getString(i));
+        READERS.put(BigDecimal.class, (rs, i) -> rs.getBigDecimal(i));
+        READERS.put(BigInteger.class, (rs, i) -> {
+            BigDecimal value = rs.getBigDecimal(i);
+            return value == null ? null : value.toBigInteger();
+        });
+        READERS.put(LocalDate.class, (rs, i) -> rs.getObject(i, LocalDate.class));
+        READERS.put(LocalDateTime.class, (rs, i) -> rs.getObject(i, LocalDateTime.class));
+        READERS.put(LocalTime.class, (rs, i) -> rs.getObject(i, LocalTime.class));
+        READERS.put(OffsetDateTime.class, (rs, i) -> rs.getObject(i, OffsetDateTime.class));
+        READERS.put(Date.class, (rs, i) -> rs.getDate(i));
+        READERS.put(Timestamp.class, (rs, i) -> rs.getTimestamp(i));
+        READERS.put(byte[].class, (rs, i) -> rs.getBytes(i));
+    }
+
+    /**
+     * Get the reader for a field type
+     *
+     * @param type the Java type of the mapped field
+     * @return a typed reader, falling back to getObject(index, type)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static ColumnReader forType(Class<?> type) {
+        ColumnReader reader = READERS.get(type);
+        if (reader != null) {
+            return reader;
+        }
+        if (type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return (rs, i) -> {
+                String value = rs.getString(i);
+                return value == null ? null : Enum.valueOf(enumType, value);
+            };
+        }
+        return (rs, i) -> rs.getObject(i, type);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.ade.project.util;
+
+import java.util.Date;
+
+/**
+ * The ConnectionLeak class describes a pooled connection held for longer than the
+ * leak detection threshold. The stack trace of the borrow is only known when the
+ * borrow was sampled.
+ */
+public class ConnectionLeak {
+    private final long borrowedAt;
+    private final long heldMillis;
+    private final String threadName;
+    private final StackTraceElement[] stackTrace;
+
+    public ConnectionLeak(long borrowedAt, long heldMillis, String threadName, StackTraceElement[] stackTrace) {
+        this.borrowedAt = borrowedAt;
+        this.heldMillis = heldMillis;
+        this.threadName = threadName;
+        this.stackTrace = stackTrace;
+    }
+
+    public long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    public long getHeldMillis() {
+        return heldMillis;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return where the connection was borrowed, or null if the borrow was not sampled
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Connection borrowed by thread ").append(threadName)
+                .append(" at ").append(new Date(borrowedAt))
+                .append(" has been held for ").append(heldMillis).append("ms");
+        if (stackTrace != null) {
+            for (StackTraceElement element : stackTrace) {
+                sb.append(System.lineSeparator()).append("\tat ").append(element);
+            }
+        }
+        return sb.toString();
+    }
+}
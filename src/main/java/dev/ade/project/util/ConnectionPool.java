@@ -1,8 +1,9 @@
 package dev.ade.project.util;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 public interface ConnectionPool {
-    Connection getConnection();
+    Connection getConnection() throws SQLException;
     boolean releaseConnection(Connection connection);
 }
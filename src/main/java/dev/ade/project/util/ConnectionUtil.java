@@ -15,18 +15,25 @@ public class ConnectionUtil {
     private static String url;
     private static final String USERNAME = System.getenv("USERNAME");
     private static final String PASSWORD = System.getenv("PASSWORD");
+    private static final int VALIDATION_TIMEOUT = 5;
+    private static final long VALIDATION_SKIP_WINDOW = 500;
+    private static long lastCheckedAt;
 
     /**
      * The getConnection method returns a singleton Connection object.
      * A local database mirrors the actual deployed web database is used for testing.
+     * The connection is checked with isValid unless it was checked moments ago,
+     * and reopened when it no longer answers.
      */
-    public static Connection getConnection() {
+    public static synchronized Connection getConnection() {
         try {
             if (IS_TEST) {
                 connection = DriverManager.getConnection("jdbc:h2:~/test");
-            } else if (connection == null || connection.isClosed()) {
+            } else if (!isUsable()) {
+                closeQuietly(connection);
                 Class.forName("org.postgresql.Driver");
                 connection = DriverManager.getConnection(url, USERNAME, PASSWORD);
+                lastCheckedAt = System.currentTimeMillis();
             }
 
         } catch (SQLException | ClassNotFoundException e) {
@@ -35,6 +42,47 @@ public class ConnectionUtil {
         return connection;
     }
 
+    /**
+     * Open a new connection to the database set with setConnection. Unlike getConnection
+     * the connection is not shared, it belongs to the caller, who closes it.
+     *
+     * @return a new Connection instance
+     */
+    public static Connection newConnection() throws SQLException {
+        if (IS_TEST) {
+            return DriverManager.getConnection("jdbc:h2:~/test");
+        }
+        if (url == null) {
+            throw new SQLException("No database url, call setConnection first");
+        }
+        return DriverManager.getConnection(url, USERNAME, PASSWORD);
+    }
+
+    private static boolean isUsable() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCheckedAt < VALIDATION_SKIP_WINDOW) {
+            return true;
+        }
+        if (!connection.isValid(VALIDATION_TIMEOUT)) {
+            return false;
+        }
+        lastCheckedAt = now;
+        return true;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
     /**
      * The getConnection method returns a singleton Connection object.
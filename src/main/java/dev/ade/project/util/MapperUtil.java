@@ -1,20 +1,18 @@
 package dev.ade.project.util;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
-import dev.ade.project.annotations.ColumnName;
-import dev.ade.project.annotations.PrimaryKey;
-
-import dev.ade.project.annotations.Unique;
+import dev.ade.project.orm.ColumnMetadata;
+import dev.ade.project.orm.EntityMetadata;
 import dev.ade.project.orm.FieldPair;
 
 public class MapperUtil {
@@ -33,7 +31,9 @@ public class MapperUtil {
         }
         int i = 1;
         for (Object value : fieldValues) {
-            if (value instanceof Boolean) {
+            if (value == null) {
+                ps.setNull(i++, Types.NULL);
+            } else if (value instanceof Boolean) {
                 ps.setBoolean(i++, (Boolean) value);
             } else if (value instanceof Byte) {
                 ps.setByte(i++, (Byte) value);
@@ -53,6 +53,18 @@ public class MapperUtil {
                 ps.setDate(i++, Date.valueOf((LocalDate) value));
             } else if (value instanceof LocalDateTime) {
                 ps.setTimestamp(i++, Timestamp.valueOf((LocalDateTime) value));
+            } else if (value instanceof Timestamp) {
+                ps.setTimestamp(i++, (Timestamp) value);
+            } else if (value instanceof Date) {
+                ps.setDate(i++, (Date) value);
+            } else if (value instanceof LocalTime || value instanceof OffsetDateTime) {
+                ps.setObject(i++, value);
+            } else if (value instanceof BigInteger) {
+                ps.setBigDecimal(i++, new BigDecimal((BigInteger) value));
+            } else if (value instanceof byte[]) {
+                ps.setBytes(i++, (byte[]) value);
+            } else if (value instanceof Enum) {
+                ps.setString(i++, ((Enum<?>) value).name());
             } else if (value instanceof Clob) {
                 ps.setClob(i++, (Clob) value);
             } else if (value instanceof Blob) {
@@ -79,36 +91,18 @@ public class MapperUtil {
      */
     public static List<FieldPair> parseFields(Object object) {
         List<FieldPair> fieldPairList = new ArrayList<>();
-        Class<?> objectClass = object.getClass();
-
-        Field[] fields = objectClass.getDeclaredFields();
-        for (Field field : fields) {
-            String fieldName = field.getName();
-            String columnName = "";
-            boolean isPrimaryKey = false;
-            Annotation a = field.getDeclaredAnnotation(PrimaryKey.class);
-            Annotation b = field.getDeclaredAnnotation(ColumnName.class);
-            PrimaryKey pk = (PrimaryKey)a;
-            ColumnName cn = (ColumnName)b;
-            if (pk!=null) {
-                isPrimaryKey = true;
-            }
+        EntityMetadata metadata = EntityMetadata.of(object.getClass());
 
-            if (cn!=null) {
-                columnName = cn.columnName();
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (!column.getAccessor().isReadable()) {
+                continue;
             }
-
-            String getterName = field.getType().getSimpleName().matches("boolean") ?
-                    "is" + fieldName.substring(0, 1).toUpperCase()+fieldName.substring(1) :
-                    "get" + fieldName.substring(0, 1).toUpperCase()+fieldName.substring(1);
-
             try {
-                Method getterMethod = objectClass.getMethod(getterName);
-                Object fieldValue = getterMethod.invoke(object);
-                FieldPair newFieldPair = new FieldPair(columnName, fieldValue, isPrimaryKey);
+                Object fieldValue = column.getValue(object);
+                FieldPair newFieldPair = new FieldPair(column.getColumnName(), fieldValue, column.isPrimaryKey());
                 fieldPairList.add(newFieldPair);
 
-            } catch (InvocationTargetException | NoSuchMethodException | IllegalAccessException e) {
+            } catch (RuntimeException e) {
                 e.printStackTrace();
             }
         }
@@ -127,23 +121,103 @@ public class MapperUtil {
         if (object == null || field == null || value == null) {
             return 0;
         }
-        Class<?> clazz = object.getClass();
-        String fieldName = field.getName();
-        Class<?> fieldType = field.getType();
-
-        String setterName = "set" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+        ColumnMetadata column = EntityMetadata.of(object.getClass()).getColumnByField(field.getName());
+        return setField(object, column, value);
+    }
 
+    /**
+     * Method to set a field value of an object through the cached setter of a column
+     *
+     * @param object object for setting field value
+     * @param column column metadata of the field to be set
+     * @param value field value to be added
+     * @return 0 for fail, 1 for success
+     */
+    public static int setField(Object object, ColumnMetadata column, String value) {
+        if (object == null || column == null || !column.getAccessor().isWritable() || value == null) {
+            return 0;
+        }
         try {
-            Method setter = clazz.getMethod(setterName, fieldType);
-            Object fieldValue = convertStringToFieldType(value, fieldType);
-            setter.invoke(object, fieldValue);
+            Object fieldValue = convertStringToFieldType(value, column.getType());
+            column.setValue(object, fieldValue);
             return 1;
-        } catch (NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
+        } catch (IllegalAccessException | InstantiationException | RuntimeException e) {
             e.printStackTrace();
         }
         return 0;
     }
 
+    /**
+     * Method to set a field value of an object straight from a result set column
+     * with the typed reader of the column, SQL NULL leaves the field untouched
+     *
+     * @param object object for setting field value
+     * @param column column metadata of the field to be set
+     * @param rs result set positioned on a row
+     * @param columnIndex 1-based index of the column in the result set
+     * @return 0 for fail, 1 for success
+     */
+    public static int setField(Object object, ColumnMetadata column, ResultSet rs, int columnIndex) throws SQLException {
+        if (object == null || column == null || !column.getAccessor().isWritable()) {
+            return 0;
+        }
+        Object fieldValue = column.getReader().read(rs, columnIndex);
+        if (fieldValue == null) {
+            return 0;
+        }
+        column.setValue(object, fieldValue);
+        return 1;
+    }
+
+    /**
+     * Convert a String to a field type, the reverse of String.valueOf for the
+     * primitive, boxed, BigDecimal, String, LocalDate and LocalDateTime types
+     *
+     * @param input a String
+     * @param type data type to convert to
+     * @return the converted value, or null if the String cannot be converted to the type
+     */
+    public static Object convert(String input, Class<?> type) {
+        if (input == null || type == null) {
+            return null;
+        }
+        try {
+            Object value = convertStringToFieldType(input, type);
+            return type.isPrimitive() || type.isInstance(value) ? value : null;
+        } catch (IllegalAccessException | InstantiationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copy a mutable column value, so a value kept aside is not changed through the record
+     * it was read from: byte arrays and the java.util.Date types are copied, the immutable
+     * types are returned as they are
+     *
+     * @param value a column value
+     * @return a copy of value if it is mutable, else value itself
+     */
+    public static Object copyOf(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        if (value instanceof Timestamp) {
+            Timestamp copy = new Timestamp(((Timestamp) value).getTime());
+            copy.setNanos(((Timestamp) value).getNanos());
+            return copy;
+        }
+        if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        }
+        if (value instanceof Time) {
+            return new Time(((Time) value).getTime());
+        }
+        if (value instanceof java.util.Date) {
+            return new java.util.Date(((java.util.Date) value).getTime());
+        }
+        return value;
+    }
+
     /**
      * Method to convert a String to another data type
      *
@@ -153,17 +227,31 @@ public class MapperUtil {
     private static Object convertStringToFieldType(String input, Class<?> type) throws IllegalAccessException, InstantiationException {
         switch(type.getName()){
             case "char":
+            case "java.lang.Character":
                 return input.charAt(0);
             case "byte":
+            case "java.lang.Byte":
                 return Byte.valueOf(input);
             case "short":
+            case "java.lang.Short":
                 return Short.valueOf(input);
             case "int":
+            case "java.lang.Integer":
                 return (int)Integer.parseInt(input);
             case "long":
+            case "java.lang.Long":
                 return Long.valueOf(input);
+            case "float":
+            case "java.lang.Float":
+                return Float.valueOf(input);
+            case "double":
+            case "java.lang.Double":
+                return Double.valueOf(input);
             case "boolean":
+            case "java.lang.Boolean":
                 return Boolean.valueOf(input);
+            case "java.math.BigDecimal":
+                return new BigDecimal(input);
             case "java.lang.String":
                 return input;
             case "java.time.LocalDate":
@@ -176,14 +264,7 @@ public class MapperUtil {
     }
 
     public static boolean isUnique(Class<?> clazz, String fieldName) {
-        Field[] fields = clazz.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.getDeclaredAnnotation(ColumnName.class).columnName().equals(fieldName) &&
-                    ((field.isAnnotationPresent(PrimaryKey.class)) || field.isAnnotationPresent(Unique.class))) {
-                return true;
-            }
-        }
-        return false;
+        return EntityMetadata.of(clazz).isUnique(fieldName);
     }
 
 }
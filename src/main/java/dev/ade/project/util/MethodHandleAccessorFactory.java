@@ -0,0 +1,173 @@
+package dev.ade.project.util;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The default {@link PropertyAccessorFactory}. Public getters and setters are bound to
+ * LambdaMetafactory-generated functions so calls run at near direct-call speed. When a
+ * lambda cannot be spun (e.g. the POJO is not visible from this class loader) the
+ * accessor falls back to a MethodHandle, and properties without a getter or setter, or
+ * whose getter or setter cannot be bound, are read or written through the field itself.
+ */
+public class MethodHandleAccessorFactory implements PropertyAccessorFactory {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    @Override
+    public PropertyAccessor create(Class<?> clazz, Field field) {
+        String fieldName = field.getName();
+        String suffix = fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
+        String getterName = field.getType() == boolean.class ? "is" + suffix : "get" + suffix;
+        Method getter = findMethod(clazz, getterName);
+        Method setter = findMethod(clazz, "set" + suffix, field.getType());
+
+        Function<Object, Object> reader = null;
+        BiConsumer<Object, Object> writer = null;
+        try {
+            reader = getter != null ? bindGetter(clazz, getter) : null;
+        } catch (IllegalAccessException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        try {
+            reader = reader != null ? reader : bindFieldGetter(field);
+        } catch (IllegalAccessException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        try {
+            writer = setter != null ? bindSetter(clazz, setter) : null;
+        } catch (IllegalAccessException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        try {
+            writer = writer != null ? writer : bindFieldSetter(field);
+        } catch (IllegalAccessException | RuntimeException e) {
+            e.printStackTrace();
+        }
+        return new BoundAccessor(clazz.getName() + "." + fieldName, reader, writer);
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bindGetter(Class<?> clazz, Method getter) throws IllegalAccessException {
+        MethodHandle handle = LOOKUP.unreflect(getter);
+        if (Modifier.isPublic(clazz.getModifiers())) {
+            try {
+                MethodType instantiated = MethodType.methodType(getter.getReturnType(), clazz).wrap();
+                return (Function<Object, Object>) LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class), GETTER_TYPE, handle, instantiated)
+                        .getTarget().invokeExact();
+            } catch (Throwable e) {
+                // fall through to the plain method handle
+            }
+        }
+        return invoker(handle.asType(GETTER_TYPE));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> bindSetter(Class<?> clazz, Method setter) throws IllegalAccessException {
+        MethodHandle handle = LOOKUP.unreflect(setter);
+        if (Modifier.isPublic(clazz.getModifiers())) {
+            try {
+                MethodType instantiated = MethodType.methodType(void.class, clazz, setter.getParameterTypes()[0])
+                        .wrap().changeReturnType(void.class);
+                return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class), SETTER_TYPE, handle, instantiated)
+                        .getTarget().invokeExact();
+            } catch (Throwable e) {
+                // fall through to the plain method handle
+            }
+        }
+        return invokerVoid(handle.asType(SETTER_TYPE));
+    }
+
+    private static Function<Object, Object> bindFieldGetter(Field field) throws IllegalAccessException {
+        field.setAccessible(true);
+        return invoker(LOOKUP.unreflectGetter(field).asType(GETTER_TYPE));
+    }
+
+    private static BiConsumer<Object, Object> bindFieldSetter(Field field) throws IllegalAccessException {
+        if (Modifier.isFinal(field.getModifiers())) {
+            return null;
+        }
+        field.setAccessible(true);
+        return invokerVoid(LOOKUP.unreflectSetter(field).asType(SETTER_TYPE));
+    }
+
+    private static Function<Object, Object> invoker(MethodHandle handle) {
+        return target -> {
+            try {
+                return (Object) handle.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> invokerVoid(MethodHandle handle) {
+        return (target, value) -> {
+            try {
+                handle.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static final class BoundAccessor implements PropertyAccessor {
+        private final String property;
+        private final Function<Object, Object> reader;
+        private final BiConsumer<Object, Object> writer;
+
+        private BoundAccessor(String property, Function<Object, Object> reader, BiConsumer<Object, Object> writer) {
+            this.property = property;
+            this.reader = reader;
+            this.writer = writer;
+        }
+
+        @Override
+        public Object get(Object target) {
+            if (reader == null) {
+                throw new IllegalStateException(property + " has no accessible getter or field");
+            }
+            return reader.apply(target);
+        }
+
+        @Override
+        public void set(Object target, Object value) {
+            if (writer == null) {
+                throw new IllegalStateException(property + " has no accessible setter or non-final field");
+            }
+            writer.accept(target, value);
+        }
+
+        @Override
+        public boolean isReadable() {
+            return reader != null;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return writer != null;
+        }
+    }
+}
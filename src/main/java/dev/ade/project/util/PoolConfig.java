@@ -0,0 +1,227 @@
+package dev.ade.project.util;
+
+/**
+ * The PoolConfig class holds the settings of a {@link BoundedConnectionPool}.
+ * Times are in milliseconds; a value of 0 disables idle eviction or max lifetime.
+ */
+public class PoolConfig {
+    private String url;
+    private String username = System.getenv("USERNAME");
+    private String password = System.getenv("PASSWORD");
+    private int minSize = 0;
+    private int maxSize = 10;
+    private long acquireTimeout = 30_000;
+    private long idleTimeout = 600_000;
+    private long maxLifetime = 1_800_000;
+    private long housekeepingPeriod = 30_000;
+    private int statementCacheSize = 64;
+    private long validationTimeout = 5_000;
+    private String testQuery;
+    private long validationSkipWindow = 500;
+    private long keepAliveTime = 120_000;
+    private String poolName = "adeOrm";
+    private boolean registerMbean;
+    private long leakDetectionThreshold;
+    private int leakTraceSampleRate = 10;
+
+    public PoolConfig() {}
+
+    public PoolConfig(String url, int maxSize) {
+        this.url = url;
+        this.maxSize = maxSize;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * @param minSize number of connections kept open even when idle
+     */
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize maximum number of open connections
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    /**
+     * @param acquireTimeout how long getConnection waits for a free connection
+     */
+    public void setAcquireTimeout(long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout how long a connection above minSize may stay idle before it is closed
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    /**
+     * @param maxLifetime how long a connection may live before it is retired
+     */
+    public void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public long getHousekeepingPeriod() {
+        return housekeepingPeriod;
+    }
+
+    /**
+     * @param housekeepingPeriod interval of the background task evicting and refilling connections
+     */
+    public void setHousekeepingPeriod(long housekeepingPeriod) {
+        this.housekeepingPeriod = housekeepingPeriod;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * @param statementCacheSize maximum number of cached prepared statements per connection
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public long getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    /**
+     * @param validationTimeout how long a connection check may take before the connection is
+     *                          considered broken, 0 disables validation on borrow
+     */
+    public void setValidationTimeout(long validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public String getTestQuery() {
+        return testQuery;
+    }
+
+    /**
+     * @param testQuery query run to check a connection, null to use Connection.isValid
+     */
+    public void setTestQuery(String testQuery) {
+        this.testQuery = testQuery;
+    }
+
+    public long getValidationSkipWindow() {
+        return validationSkipWindow;
+    }
+
+    /**
+     * @param validationSkipWindow connections returned to the pool more recently than this
+     *                             are handed out without being checked
+     */
+    public void setValidationSkipWindow(long validationSkipWindow) {
+        this.validationSkipWindow = validationSkipWindow;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    /**
+     * @param keepAliveTime idle connections unused for longer are checked by the background task
+     *                      so broken ones are replaced before they are borrowed, 0 disables it
+     */
+    public void setKeepAliveTime(long keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * @param poolName name of the pool in its JMX ObjectName
+     */
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public boolean isRegisterMbean() {
+        return registerMbean;
+    }
+
+    /**
+     * @param registerMbean whether the pool metrics are registered with the platform MBean server
+     */
+    public void setRegisterMbean(boolean registerMbean) {
+        this.registerMbean = registerMbean;
+    }
+
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    /**
+     * @param leakDetectionThreshold connections borrowed for longer are reported as possible
+     *                               leaks by the background task, 0 disables leak detection
+     */
+    public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    public int getLeakTraceSampleRate() {
+        return leakTraceSampleRate;
+    }
+
+    /**
+     * @param leakTraceSampleRate record the stack trace of one borrow out of this many when leak
+     *                            detection is on, 1 records every borrow and 0 none
+     */
+    public void setLeakTraceSampleRate(int leakTraceSampleRate) {
+        this.leakTraceSampleRate = leakTraceSampleRate;
+    }
+}
@@ -0,0 +1,36 @@
+package dev.ade.project.util;
+
+/**
+ * The PoolListener interface receives the events of a {@link BoundedConnectionPool}
+ * as they happen, e.g. to push them to a metrics system. Callbacks run on the thread
+ * causing the event and must not block.
+ */
+public interface PoolListener {
+
+    /**
+     * @param waitNanos how long the borrower waited for the connection
+     */
+    default void onAcquire(long waitNanos) {}
+
+    /**
+     * @param waitNanos how long the borrower waited before giving up
+     */
+    default void onTimeout(long waitNanos) {}
+
+    /**
+     * @param nanos how long opening the physical connection took
+     */
+    default void onCreate(long nanos) {}
+
+    /**
+     * A physical connection was closed because it was broken, expired or idle for too long
+     */
+    default void onRetire() {}
+
+    /**
+     * A borrowed connection has been held for longer than the leak detection threshold
+     *
+     * @param leak who borrowed the connection and for how long
+     */
+    default void onLeak(ConnectionLeak leak) {}
+}
@@ -0,0 +1,152 @@
+package dev.ade.project.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The PoolMetrics class records the events of one {@link BoundedConnectionPool}.
+ * The numbers can be polled through its getters, which also back the JMX MBean of
+ * the pool, or pushed to {@link PoolListener}s as the events happen.
+ */
+public class PoolMetrics implements PoolMetricsMXBean {
+    private final BoundedConnectionPool pool;
+    private final List<PoolListener> listeners = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram acquireWait = new LatencyHistogram();
+    private final LatencyHistogram creation = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder retired = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    PoolMetrics(BoundedConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void addListener(PoolListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    void recordAcquire(long waitNanos) {
+        acquireWait.record(waitNanos);
+        for (PoolListener listener : listeners) {
+            listener.onAcquire(waitNanos);
+        }
+    }
+
+    void recordTimeout(long waitNanos) {
+        timeouts.increment();
+        for (PoolListener listener : listeners) {
+            listener.onTimeout(waitNanos);
+        }
+    }
+
+    void recordCreate(long nanos) {
+        creation.record(nanos);
+        for (PoolListener listener : listeners) {
+            listener.onCreate(nanos);
+        }
+    }
+
+    void recordRetire() {
+        retired.increment();
+        for (PoolListener listener : listeners) {
+            listener.onRetire();
+        }
+    }
+
+    void recordLeak(ConnectionLeak leak) {
+        leaks.increment();
+        for (PoolListener listener : listeners) {
+            listener.onLeak(leak);
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return pool.getIdleCount();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pool.getPendingCount();
+    }
+
+    @Override
+    public int getTotalCount() {
+        return pool.getSize();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return pool.getConfig().getMaxSize();
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return acquireWait.getCount();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getCreatedCount() {
+        return creation.getCount();
+    }
+
+    @Override
+    public long getRetiredCount() {
+        return retired.sum();
+    }
+
+    @Override
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    @Override
+    public double getAcquireWaitMeanMillis() {
+        return acquireWait.getMeanMillis();
+    }
+
+    @Override
+    public double getAcquireWaitMaxMillis() {
+        return acquireWait.getMaxMillis();
+    }
+
+    @Override
+    public long[] getAcquireWaitHistogram() {
+        return acquireWait.getCounts();
+    }
+
+    @Override
+    public double getCreationMeanMillis() {
+        return creation.getMeanMillis();
+    }
+
+    @Override
+    public double getCreationMaxMillis() {
+        return creation.getMaxMillis();
+    }
+
+    @Override
+    public long[] getCreationHistogram() {
+        return creation.getCounts();
+    }
+
+    @Override
+    public long[] getHistogramBounds() {
+        return LatencyHistogram.getBounds();
+    }
+}
@@ -0,0 +1,54 @@
+package dev.ade.project.util;
+
+/**
+ * The PoolMetricsMXBean interface lists the numbers a {@link BoundedConnectionPool}
+ * exposes for polling, directly or over JMX. Times are in milliseconds.
+ */
+public interface PoolMetricsMXBean {
+
+    int getActiveCount();
+
+    int getIdleCount();
+
+    /**
+     * @return number of threads waiting for a connection
+     */
+    int getPendingCount();
+
+    int getTotalCount();
+
+    int getMaxSize();
+
+    long getAcquireCount();
+
+    long getTimeoutCount();
+
+    long getCreatedCount();
+
+    long getRetiredCount();
+
+    long getLeakCount();
+
+    double getAcquireWaitMeanMillis();
+
+    double getAcquireWaitMaxMillis();
+
+    /**
+     * @return borrow counts per wait time bucket, see getHistogramBounds
+     */
+    long[] getAcquireWaitHistogram();
+
+    double getCreationMeanMillis();
+
+    double getCreationMaxMillis();
+
+    /**
+     * @return connection counts per creation time bucket, see getHistogramBounds
+     */
+    long[] getCreationHistogram();
+
+    /**
+     * @return exclusive upper bounds of the histogram buckets
+     */
+    long[] getHistogramBounds();
+}
@@ -0,0 +1,412 @@
+package dev.ade.project.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The PooledConnection class wraps a physical connection owned by a connection pool.
+ * Each borrow hands out a new proxy handle: closing the handle gives the connection back
+ * to the pool instead of closing it, and prepareStatement is served from a per-connection
+ * {@link StatementCache} so identical statements are not re-parsed by the database.
+ */
+public class PooledConnection {
+    private final Connection physical;
+    private final StatementCache statementCache;
+    private final Consumer<PooledConnection> releaser;
+    private final Set<PreparedStatement> checkedOut = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+    // statements handed out without the cache, createStatement, prepareCall and the other
+    // prepareStatement variants, closed on release if the borrower left them open
+    private final List<Statement> uncached = new ArrayList<>();
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long lastUsedAt = createdAt;
+    private volatile long lastCheckedAt = createdAt;
+    private volatile long borrowedAt;
+    private volatile String borrower;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+
+    /**
+     * @param physical the physical connection
+     * @param statementCacheSize maximum number of idle statements kept open per connection
+     * @param releaser callback giving the connection back to its pool when a handle is closed
+     */
+    public PooledConnection(Connection physical, int statementCacheSize, Consumer<PooledConnection> releaser) {
+        this.physical = physical;
+        this.statementCache = new StatementCache(statementCacheSize);
+        this.releaser = releaser;
+    }
+
+    /**
+     * Create a new handle for a borrower of the connection
+     *
+     * @return a Connection whose close() releases the connection to its pool
+     */
+    public Connection borrow() {
+        return (Connection) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle());
+    }
+
+    /**
+     * Find the pooled connection behind a handle
+     *
+     * @param connection a handle returned by borrow()
+     * @return the pooled connection, or null if the connection is not a pool handle
+     */
+    public static PooledConnection from(Connection connection) {
+        if (connection == null || !Proxy.isProxyClass(connection.getClass())) {
+            return null;
+        }
+        InvocationHandler handler = Proxy.getInvocationHandler(connection);
+        return handler instanceof Handle ? ((Handle) handler).owner() : null;
+    }
+
+    /**
+     * Close statements a borrower left open and restore the default connection state,
+     * called before the connection goes back to the pool
+     */
+    public void reset() throws SQLException {
+        PreparedStatement[] leftOpen;
+        synchronized (checkedOut) {
+            leftOpen = checkedOut.toArray(new PreparedStatement[0]);
+            checkedOut.clear();
+        }
+        for (PreparedStatement ps : leftOpen) {
+            StatementCache.closeQuietly(ps);
+        }
+        Statement[] uncachedLeftOpen;
+        synchronized (uncached) {
+            uncachedLeftOpen = uncached.toArray(new Statement[0]);
+            uncached.clear();
+        }
+        for (Statement statement : uncachedLeftOpen) {
+            StatementCache.closeQuietly(statement);
+        }
+        if (!physical.isClosed() && !physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        if (!physical.isClosed() && physical.isReadOnly()) {
+            physical.setReadOnly(false);
+        }
+        physical.clearWarnings();
+    }
+
+    /**
+     * Close the cached statements and the physical connection
+     */
+    public void closePhysically() {
+        statementCache.clear();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Record that the connection was just used, called when it is returned to the pool
+     */
+    public void touch() {
+        lastUsedAt = System.currentTimeMillis();
+        lastCheckedAt = lastUsedAt;
+    }
+
+    /**
+     * Record that the connection was just found working without being used
+     */
+    public void markChecked() {
+        lastCheckedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Record who borrowed the connection, for leak detection
+     *
+     * @param trace where the connection was borrowed, null when the borrow was not sampled
+     */
+    public void markBorrowed(Throwable trace) {
+        borrower = Thread.currentThread().getName();
+        borrowTrace = trace;
+        leakReported = false;
+        borrowedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Forget the borrower, called when the connection is returned to the pool
+     */
+    public void markReturned() {
+        borrowedAt = 0;
+        borrower = null;
+        borrowTrace = null;
+    }
+
+    /**
+     * Describe the borrow of the connection if it has been held for at least the threshold
+     *
+     * @param threshold milliseconds a connection may be held before it is suspected to leak
+     * @param now current time in milliseconds
+     * @return the suspected leak, or null if the connection is idle or held for a shorter time
+     */
+    public ConnectionLeak getLeak(long threshold, long now) {
+        long since = borrowedAt;
+        if (since == 0 || now - since < threshold) {
+            return null;
+        }
+        Throwable trace = borrowTrace;
+        return new ConnectionLeak(since, now - since, borrower, trace == null ? null : trace.getStackTrace());
+    }
+
+    /**
+     * @return true the first time it is called for the current borrow
+     */
+    boolean flagLeak() {
+        if (leakReported) {
+            return false;
+        }
+        leakReported = true;
+        return true;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    /**
+     * @return when the connection was last used or found working
+     */
+    public long getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    public Connection getPhysicalConnection() {
+        return physical;
+    }
+
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    private PreparedStatement prepare(Connection handle, Method method, Object[] args) throws Throwable {
+        String key = cacheKey(args);
+        PreparedStatement ps = key == null ? null : statementCache.take(key);
+        if (ps == null) {
+            ps = (PreparedStatement) invoke(physical, method, args);
+        }
+        if (key == null) {
+            return track(ps);
+        }
+        checkedOut.add(ps);
+        return (PreparedStatement) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new CachedStatement(key, ps, handle));
+    }
+
+    /**
+     * Remember a statement that is not cached, dropping the ones the borrower closed since
+     *
+     * @return the statement
+     */
+    private <S extends Statement> S track(S statement) throws SQLException {
+        synchronized (uncached) {
+            Iterator<Statement> open = uncached.iterator();
+            while (open.hasNext()) {
+                if (open.next().isClosed()) {
+                    open.remove();
+                }
+            }
+            uncached.add(statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Only the plain and generated-key variants of prepareStatement are cached
+     */
+    private static String cacheKey(Object[] args) {
+        if (args.length == 1) {
+            return (String) args[0];
+        }
+        if (args.length == 2 && args[1] instanceof Integer) {
+            return args[0] + "\u0000" + args[1];
+        }
+        if (args.length == 2 && args[1] instanceof String[]) {
+            return args[0] + "\u0000" + Arrays.toString((String[]) args[1]);
+        }
+        return null;
+    }
+
+    private void giveBack(String key, PreparedStatement ps, boolean tuned) throws SQLException {
+        if (!checkedOut.remove(ps)) {
+            return;
+        }
+        if (physical.isClosed() || (tuned && !restoreDefaults(ps))) {
+            StatementCache.closeQuietly(ps);
+        } else {
+            statementCache.giveBack(key, ps);
+        }
+    }
+
+    /**
+     * Undo the result set settings of a borrower before the statement is reused
+     *
+     * @return false if the driver refused, the statement is then not cached
+     */
+    private static boolean restoreDefaults(PreparedStatement ps) {
+        try {
+            ps.setFetchSize(0);
+            ps.setMaxRows(0);
+            ps.setQueryTimeout(0);
+            ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private volatile boolean closed;
+
+        PooledConnection owner() {
+            return PooledConnection.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        releaser.accept(PooledConnection.this);
+                    }
+                    return null;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                return prepare((Connection) proxy, method, args);
+            }
+            if (method.getName().equals("createStatement") || method.getName().equals("prepareCall")) {
+                return track((Statement) PooledConnection.invoke(physical, method, args));
+            }
+            return PooledConnection.invoke(physical, method, args);
+        }
+    }
+
+    private class CachedStatement implements InvocationHandler {
+        private final String key;
+        private final PreparedStatement ps;
+        private final Connection handle;
+        // result sets handed to the borrower, closed before the statement is cached
+        private final List<ResultSet> results = new ArrayList<>();
+        private boolean closed;
+        private boolean tuned;
+
+        CachedStatement(String key, PreparedStatement ps, Connection handle) {
+            this.key = key;
+            this.ps = ps;
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return ps.toString();
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return handle;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        closeResults();
+                        giveBack(key, ps, tuned);
+                    }
+                    return null;
+                case "setFetchSize":
+                case "setFetchDirection":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setQueryTimeout":
+                    tuned = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            Object result = PooledConnection.invoke(ps, method, args);
+            if (result instanceof ResultSet) {
+                track((ResultSet) result);
+            }
+            return result;
+        }
+
+        private void track(ResultSet rs) throws SQLException {
+            Iterator<ResultSet> open = results.iterator();
+            while (open.hasNext()) {
+                ResultSet previous = open.next();
+                if (previous == rs) {
+                    return;
+                }
+                if (previous.isClosed()) {
+                    open.remove();
+                }
+            }
+            results.add(rs);
+        }
+
+        private void closeResults() {
+            for (ResultSet rs : results) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            results.clear();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package dev.ade.project.util;
+
+/**
+ * A PropertyAccessor reads and writes one property of a POJO. Accessors are bound
+ * once per property by a {@link PropertyAccessorFactory}, so row hydration and field
+ * extraction do not look up or reflectively invoke methods per call.
+ */
+public interface PropertyAccessor {
+
+    /**
+     * Read the property value of an object
+     *
+     * @param target object to read from
+     * @return the property value, primitives are boxed
+     */
+    Object get(Object target);
+
+    /**
+     * Write the property value of an object
+     *
+     * @param target object to write to
+     * @param value new property value, primitives must be passed boxed
+     */
+    void set(Object target, Object value);
+
+    boolean isReadable();
+
+    boolean isWritable();
+}
@@ -0,0 +1,19 @@
+package dev.ade.project.util;
+
+import java.lang.reflect.Field;
+
+/**
+ * A PropertyAccessorFactory binds a field of a POJO class to a {@link PropertyAccessor}.
+ * The factory in use can be replaced with EntityMetadata.setAccessorFactory.
+ */
+public interface PropertyAccessorFactory {
+
+    /**
+     * Bind a property of a POJO class
+     *
+     * @param clazz the class of a POJO class
+     * @param field the field backing the property
+     * @return an accessor for the property
+     */
+    PropertyAccessor create(Class<?> clazz, Field field);
+}
@@ -0,0 +1,106 @@
+package dev.ade.project.util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StatementCache class keeps the idle prepared statements of one physical connection,
+ * keyed by SQL, in least-recently-used order. Statements stay open between calls so the
+ * server-side prepared plans survive; the eldest statement is closed when the cache is full.
+ */
+public class StatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of idle statements kept open, 0 disables caching
+     */
+    public StatementCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * Take an idle statement out of the cache
+     *
+     * @param key SQL string (plus generated-key options) of the statement
+     * @return the cached statement, or null on a miss
+     */
+    synchronized PreparedStatement take(String key) {
+        PreparedStatement ps = idle.remove(key);
+        if (ps != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return ps;
+    }
+
+    /**
+     * Return a statement to the cache after its caller closed it, evicting
+     * the least recently used statement if the cache is full
+     *
+     * @param key SQL string (plus generated-key options) of the statement
+     * @param ps the physical statement
+     */
+    synchronized void giveBack(String key, PreparedStatement ps) {
+        if (maxSize == 0 || idle.containsKey(key)) {
+            closeQuietly(ps);
+            return;
+        }
+        try {
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.clearWarnings();
+        } catch (SQLException e) {
+            closeQuietly(ps);
+            return;
+        }
+        idle.put(key, ps);
+        if (idle.size() > maxSize) {
+            Iterator<Map.Entry<String, PreparedStatement>> eldest = idle.entrySet().iterator();
+            closeQuietly(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Close every idle statement, used when the physical connection is closed
+     */
+    void clear() {
+        List<PreparedStatement> statements;
+        synchronized (this) {
+            statements = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        statements.forEach(StatementCache::closeQuietly);
+    }
+
+    static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized int size() {
+        return idle.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,90 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdeOrmBatchTest {
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+
+    @BeforeEach
+    public void runSetup() throws SQLException, FileNotFoundException {
+        pAdeOrm.setConnection("jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1");
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    @Test
+    public void addAllInsertsEveryRow() throws ArgumentFormatException, SQLException {
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            posts.add(new Post(0, "alpha", "Title " + i, "United States", "Denver", null, i % 5));
+        }
+        int[] outcomes = pAdeOrm.addAll(posts, 10);
+        assertEquals(25, outcomes.length);
+        for (int outcome : outcomes) {
+            assertEquals(1, outcome);
+        }
+        assertEquals(29, pAdeOrm.getAll().size());
+        assertEquals(5, posts.get(0).getPostId());
+        assertEquals(29, posts.get(24).getPostId());
+    }
+
+    @Test
+    public void addWritesGeneratedKeyBack() throws ArgumentFormatException, SQLException {
+        Post post = new Post(0, "charlie", "Tiramisu", "Italy", "Rome", "food", 5);
+        assertTrue(pAdeOrm.add(post));
+        assertEquals(5, post.getPostId());
+        assertEquals(post, pAdeOrm.get("post_id", 5));
+    }
+
+    @Test
+    public void updateAllUpdatesByPrimaryKey() throws ArgumentFormatException, SQLException {
+        List<Post> posts = new ArrayList<>();
+        for (Post post : pAdeOrm.getAll()) {
+            post.setRating(1);
+            posts.add(post);
+        }
+        assertEquals(4, pAdeOrm.updateAll(posts, 3));
+        for (Post post : pAdeOrm.getAll()) {
+            assertEquals(1, post.getRating());
+        }
+    }
+
+    @Test
+    public void deleteByIdsDeletesInChunks() throws ArgumentFormatException, SQLException {
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            posts.add(new Post(0, "beta", "Title " + i, "Italy", "Naples", "food", 3));
+        }
+        pAdeOrm.addAll(posts);
+        List<Object> ids = new ArrayList<>();
+        for (Post post : pAdeOrm.getAll()) {
+            ids.add(post.getPostId());
+        }
+        ids.add(-1);
+        assertEquals(604, pAdeOrm.deleteByIds(ids));
+        assertTrue(pAdeOrm.getAll().isEmpty());
+    }
+
+    @AfterEach
+    public void runTeardown() throws SQLException, FileNotFoundException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+    }
+}
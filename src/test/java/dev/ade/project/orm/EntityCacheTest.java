@@ -0,0 +1,180 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.User;
+import dev.ade.project.util.BasicConnectionPoolUtil;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.api.Trigger;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheTest {
+    private static final String URL = "jdbc:h2:mem:cache;DB_CLOSE_DELAY=-1";
+
+    private final AdeOrm<User> uAdeOrm = new AdeOrm<>(User.class);
+
+    /**
+     * Runs an action while the statement that fired it is still executing
+     */
+    public static class DuringWrite implements Trigger {
+        static volatile Runnable action;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) {}
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            Runnable current = action;
+            if (current != null) {
+                current.run();
+            }
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        public void remove() {}
+    }
+
+    @BeforeEach
+    public void runSetup() throws Exception {
+        uAdeOrm.setConnection(URL);
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    private void renameOutsideOrm(String firstName) throws Exception {
+        try (Connection connection = ConnectionUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("update users set first_name = '" + firstName + "' where username = 'alpha'");
+        }
+    }
+
+    @Test
+    public void primaryKeyLookupsAreCachedUntilWritten() throws Exception {
+        uAdeOrm.enableCache(100, 0);
+        User first = uAdeOrm.get("username", "alpha");
+        renameOutsideOrm("Lea");
+        User second = uAdeOrm.get("username", "alpha");
+        assertNotSame(first, second);
+        assertEquals("Leah", second.getFirstName());
+        assertEquals('F', second.getGender());
+        assertEquals(1, uAdeOrm.getCache().getMissCount());
+        assertEquals(1, uAdeOrm.getCache().getHitCount());
+
+        second.setFirstName("Changed");
+        assertEquals("Leah", uAdeOrm.get("username", "alpha").getFirstName());
+
+        uAdeOrm.update2("gender", "username", "alpha", "M");
+        assertEquals("Lea", uAdeOrm.get("username", "alpha").getFirstName());
+
+        try (Session session = Session.open()) {
+            session.begin();
+            uAdeOrm.update2("first_name", "username", "alpha", "Leia");
+            assertEquals("Leia", uAdeOrm.get("username", "alpha").getFirstName());
+            session.rollback();
+        }
+        assertEquals("Lea", uAdeOrm.get("username", "alpha").getFirstName());
+    }
+
+    @Test
+    public void cachedValuesAreNotSharedWithRecords() throws Exception {
+        AdeOrm<PageTest.Event> eAdeOrm = new AdeOrm<>(PageTest.Event.class);
+        Timestamp happened = Timestamp.valueOf("2021-03-01 10:15:30");
+        try (Connection connection = ConnectionUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table event(event_id serial primary key, happened timestamp not null)");
+            statement.execute("insert into event(happened) values ('2021-03-01 10:15:30')");
+        }
+        try {
+            eAdeOrm.enableCache(10, 0);
+            eAdeOrm.get("event_id", 1).getHappened().setTime(0);
+            PageTest.Event cached = eAdeOrm.get("event_id", 1);
+            assertEquals(happened, cached.getHappened());
+            cached.getHappened().setTime(0);
+            assertEquals(happened, eAdeOrm.get("event_id", 1).getHappened());
+            assertEquals(2, eAdeOrm.getCache().getHitCount());
+        } finally {
+            eAdeOrm.disableCache();
+            try (Connection connection = ConnectionUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("drop table event");
+            }
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedAndExpiredRecordsAreEvicted() throws Exception {
+        uAdeOrm.enableCache(2, 0);
+        uAdeOrm.get("username", "alpha");
+        uAdeOrm.get("username", "beta");
+        uAdeOrm.get("username", "alpha");
+        uAdeOrm.get("username", "charlie");
+        EntityCache cache = uAdeOrm.getCache();
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        uAdeOrm.get("username", "alpha");
+        assertEquals(2, cache.getHitCount());
+
+        uAdeOrm.enableCache(10, 50);
+        uAdeOrm.get("username", "alpha");
+        Thread.sleep(100);
+        uAdeOrm.get("username", "alpha");
+        assertEquals(0, uAdeOrm.getCache().getHitCount());
+        assertEquals(1, uAdeOrm.getCache().getEvictionCount());
+
+        assertThrows(ArgumentFormatException.class, () -> uAdeOrm.enableCache(0, 0));
+    }
+
+    @Test
+    public void readDuringWriteIsNotCached() throws Exception {
+        BasicConnectionPoolUtil.initialize(URL, 4);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            uAdeOrm.enableCache(100, 0);
+            try (Connection connection = BasicConnectionPoolUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("create trigger during_write before update on users for each row call \"" +
+                        DuringWrite.class.getName() + "\"");
+            }
+            DuringWrite.action = () -> {
+                try {
+                    assertEquals("Leah", reader.submit(() -> uAdeOrm.get("username", "alpha"))
+                            .get(10, TimeUnit.SECONDS).getFirstName());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            uAdeOrm.update2("first_name", "username", "alpha", "Lea");
+            DuringWrite.action = null;
+            assertEquals("Lea", uAdeOrm.get("username", "alpha").getFirstName());
+        } finally {
+            DuringWrite.action = null;
+            reader.shutdown();
+            BasicConnectionPoolUtil.shutdown();
+        }
+    }
+
+    @AfterEach
+    public void runTeardown() throws Exception {
+        uAdeOrm.disableCache();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+    }
+}
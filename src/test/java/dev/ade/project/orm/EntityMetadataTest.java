@@ -0,0 +1,81 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.pojo.User;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityMetadataTest {
+
+    @Test
+    public void metadataIsCachedPerClass() {
+        assertSame(EntityMetadata.of(User.class), EntityMetadata.of(User.class));
+    }
+
+    @Test
+    public void metadataReadsTableAndColumns() {
+        EntityMetadata metadata = EntityMetadata.of(Post.class);
+        assertEquals("post", metadata.getTableName());
+        assertEquals(7, metadata.getColumns().size());
+        assertEquals("post_id", metadata.getColumns().get(0).getColumnName());
+        assertEquals("post_id", metadata.getPrimaryKey().getColumnName());
+    }
+
+    @Test
+    public void metadataResolvesUniqueColumns() {
+        EntityMetadata metadata = EntityMetadata.of(User.class);
+        assertTrue(metadata.isUnique("username"));
+        assertFalse(metadata.isUnique("first_name"));
+        assertFalse(metadata.isUnique("not_a_column"));
+    }
+
+    @Test
+    public void metadataResolvesAccessors() throws ArgumentFormatException {
+        EntityMetadata metadata = EntityMetadata.of(User.class);
+        ColumnMetadata gender = metadata.getColumn("gender");
+        assertTrue(gender.getAccessor().isReadable());
+        assertTrue(gender.getAccessor().isWritable());
+        assertTrue(metadata.newInstance() instanceof User);
+    }
+
+    @Test
+    public void planMapsRowsByIndex() throws SQLException, ArgumentFormatException {
+        EntityMetadata metadata = EntityMetadata.of(User.class);
+        String sql = "select * from users";
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:plan");
+             Statement st = conn.createStatement()) {
+            st.execute("create table users(first_name varchar(30), last_name varchar(30), gender varchar(1), " +
+                    "username varchar(30) primary key, user_password varchar(30))");
+            st.execute("insert into users values ('Leah', 'Canavan', 'F', 'alpha', 'password123')");
+            try (ResultSet rs = st.executeQuery(sql)) {
+                ResultSetPlan plan = metadata.getPlan(sql, rs);
+                assertTrue(rs.next());
+                User user = (User) metadata.newInstance();
+                plan.populate(user, rs);
+                assertEquals(new User("Leah", "Canavan", 'F', "alpha", "password123"), user);
+                assertSame(plan, metadata.getPlan(sql, rs));
+            }
+            // same column count, columns in another order
+            st.execute("drop table users");
+            st.execute("create table users(last_name varchar(30), first_name varchar(30), gender varchar(1), " +
+                    "username varchar(30) primary key, user_password varchar(30))");
+            st.execute("insert into users values ('Canavan', 'Leah', 'F', 'alpha', 'password123')");
+            try (ResultSet rs = st.executeQuery(sql)) {
+                ResultSetPlan plan = metadata.getPlan(sql, rs);
+                assertTrue(rs.next());
+                User user = (User) metadata.newInstance();
+                plan.populate(user, rs);
+                assertEquals("Leah", user.getFirstName());
+                assertEquals("Canavan", user.getLastName());
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.annotations.ColumnName;
+import dev.ade.project.annotations.PrimaryKey;
+import dev.ade.project.annotations.TableName;
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageTest {
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+
+    @TableName(tableName = "event")
+    public static class Event {
+        @PrimaryKey
+        @ColumnName(columnName = "event_id")
+        private int eventId;
+
+        @ColumnName(columnName = "happened")
+        private Timestamp happened;
+
+        public Event() {}
+
+        public Event(Timestamp happened) {
+            this.happened = happened;
+        }
+
+        public int getEventId() {
+            return eventId;
+        }
+
+        public void setEventId(int eventId) {
+            this.eventId = eventId;
+        }
+
+        public Timestamp getHappened() {
+            return happened;
+        }
+
+        public void setHappened(Timestamp happened) {
+            this.happened = happened;
+        }
+    }
+
+    @BeforeEach
+    public void runSetup() throws SQLException, FileNotFoundException, ArgumentFormatException {
+        pAdeOrm.setConnection("jdbc:h2:mem:page;DB_CLOSE_DELAY=-1");
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            posts.add(new Post(0, "beta", "Title " + i, "Italy", "Naples", "food", i % 3));
+        }
+        pAdeOrm.addAll(posts);
+    }
+
+    @Test
+    public void pagesWalkThePrimaryKeyOnce() throws ArgumentFormatException {
+        List<Integer> ids = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            Page<Post> page = pAdeOrm.page(10, token);
+            page.getItems().forEach(post -> ids.add(post.getPostId()));
+            token = page.getNextToken();
+            pages++;
+        } while (token != null);
+        assertEquals(3, pages);
+        assertEquals(25, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, ids.get(i));
+        }
+    }
+
+    @Test
+    public void pagesOnNonUniqueColumnBreakTiesByPrimaryKey() throws ArgumentFormatException {
+        List<Post> seen = new ArrayList<>();
+        String token = null;
+        do {
+            Page<Post> page = pAdeOrm.select().where(Condition.eq("country", "Italy"))
+                    .orderBy("rating", "desc").page(4, token);
+            seen.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+        assertEquals(21, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            Post a = seen.get(i - 1);
+            Post b = seen.get(i);
+            assertTrue(a.getRating() > b.getRating() ||
+                    (a.getRating() == b.getRating() && a.getPostId() > b.getPostId()));
+        }
+    }
+
+    @Test
+    public void tokenOfAnotherOrderingIsRejected() throws ArgumentFormatException {
+        String token = pAdeOrm.page(2, null).getNextToken();
+        assertThrows(ArgumentFormatException.class, () -> pAdeOrm.page("rating", "asc", 2, token));
+        assertThrows(ArgumentFormatException.class, () -> pAdeOrm.page(2, "not a token"));
+    }
+
+    @Test
+    public void pagesOnTimestampColumn() throws Exception {
+        AdeOrm<Event> eAdeOrm = new AdeOrm<>(Event.class);
+        try (Connection connection = ConnectionUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table event(event_id serial primary key, happened timestamp not null)");
+        }
+        try {
+            List<Event> events = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                events.add(new Event(Timestamp.valueOf("2021-03-0" + (1 + i % 3) + " 10:15:30.123456789")));
+            }
+            eAdeOrm.addAll(events);
+            List<Event> seen = new ArrayList<>();
+            String token = null;
+            do {
+                Page<Event> page = eAdeOrm.page("happened", "asc", 2, token);
+                seen.addAll(page.getItems());
+                token = page.getNextToken();
+            } while (token != null);
+            assertEquals(7, seen.size());
+            for (int i = 1; i < seen.size(); i++) {
+                Event a = seen.get(i - 1);
+                Event b = seen.get(i);
+                assertTrue(a.getHappened().before(b.getHappened()) ||
+                        (a.getHappened().equals(b.getHappened()) && a.getEventId() < b.getEventId()));
+            }
+        } finally {
+            try (Connection connection = ConnectionUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("drop table event");
+            }
+        }
+    }
+
+    @AfterEach
+    public void runTeardown() throws SQLException, FileNotFoundException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.annotations.ColumnName;
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.pojo.User;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProjectionTest {
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+    private final AdeOrm<User> uAdeOrm = new AdeOrm<>(User.class);
+
+    public static class PostSummary {
+        private final int postId;
+        private final String title;
+
+        public PostSummary(int postId, String title) {
+            this.postId = postId;
+            this.title = title;
+        }
+    }
+
+    public static class PostRating {
+        private String title;
+        private Integer rating;
+        @ColumnName(columnName = "username")
+        private String author;
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+    }
+
+    @BeforeEach
+    public void runSetup() throws SQLException, FileNotFoundException {
+        pAdeOrm.setConnection("jdbc:h2:mem:projection;DB_CLOSE_DELAY=-1");
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    @Test
+    public void constructorBindingFollowsSelectOrder() throws ArgumentFormatException {
+        List<PostSummary> posts = pAdeOrm.select().where(Condition.eq("city", "Chicago"))
+                .orderBy("post_id").project(PostSummary.class, "post_id", "title");
+        assertEquals(2, posts.size());
+        assertEquals(3, posts.get(0).postId);
+        assertEquals("Inception", posts.get(0).title);
+
+        PostSummary summary = pAdeOrm.getColumns(PostSummary.class, "post_id", 4, "post_id", "title");
+        assertEquals("Vanilla Ice Cream", summary.title);
+        assertNull(pAdeOrm.getColumns(PostSummary.class, "post_id", 99, "post_id", "title"));
+    }
+
+    @Test
+    public void propertyBindingMatchesNamesAndColumnNames() throws ArgumentFormatException {
+        List<PostRating> posts = pAdeOrm.getRecordsInOrder(PostRating.class,
+                Arrays.asList("title", "rating", "username"), "country", "United States", "post_id", "asc");
+        assertEquals(4, posts.size());
+        assertEquals("Shrimp Linguini Alfredo", posts.get(0).title);
+        assertEquals(0, posts.get(0).rating);
+        assertEquals("alpha", posts.get(0).author);
+
+        List<PostRating> joint = uAdeOrm.getJointWhere(PostRating.class, "inner", "users.username", "post",
+                "post.username", Arrays.asList("title", "post.username"), "first_name", "Richelle");
+        assertEquals(1, joint.size());
+        assertEquals("Cuban Sandwich", joint.get(0).title);
+        assertEquals("beta", joint.get(0).author);
+
+        assertThrows(ArgumentFormatException.class,
+                () -> pAdeOrm.select().project(PostRating.class, "title", "city"));
+    }
+
+    @AfterEach
+    public void runTeardown() throws SQLException, FileNotFoundException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+    }
+}
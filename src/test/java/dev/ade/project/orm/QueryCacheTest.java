@@ -0,0 +1,131 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.pojo.Post;
+import dev.ade.project.util.BasicConnectionPoolUtil;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCacheTest {
+    private static final String URL = "jdbc:h2:mem:querycache;DB_CLOSE_DELAY=-1";
+
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+    private final List<FieldPair> chicago = Collections.singletonList(new FieldPair("city", "Chicago"));
+
+    @BeforeEach
+    public void runSetup() throws Exception {
+        pAdeOrm.setConnection(URL);
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    private void deleteOutsideOrm() throws Exception {
+        try (Connection connection = ConnectionUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("delete from post where post_id = 4");
+        }
+    }
+
+    @Test
+    public void resultsAreCachedUntilTheTableIsWritten() throws Exception {
+        pAdeOrm.enableQueryCache(100, 0);
+        List<Post> first = pAdeOrm.getWithCriterion(chicago, "no");
+        List<List<Object>> ratings = pAdeOrm.getRecordsInOrder(Arrays.asList("post_id", "rating"),
+                "city", "Chicago", "post_id", "asc");
+        deleteOutsideOrm();
+
+        List<Post> second = pAdeOrm.getWithCriterion(chicago, "no");
+        assertEquals(2, second.size());
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals("Inception", second.get(0).getTitle());
+        ratings.get(0).set(1, "changed");
+        assertEquals(Arrays.asList("3", "3"), pAdeOrm.getRecordsInOrder(Arrays.asList("post_id", "rating"),
+                "city", "Chicago", "post_id", "asc").get(0));
+        QueryCache cache = pAdeOrm.getQueryCache();
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(4, cache.getRowCount());
+
+        pAdeOrm.add(new Post(0, "beta", "Deep Dish Pizza", "United States", "Chicago", "food", 5));
+        assertEquals(0, cache.getSize());
+        assertEquals(2, pAdeOrm.getWithCriterion(chicago, "no").size());
+    }
+
+    @Test
+    public void keysCompareArrayParametersByContent() {
+        String sql = "select * from post where title=?";
+        assertEquals(QueryCache.key(sql, 0, (Object) new byte[]{1, 2}), QueryCache.key(sql, 0, (Object) new byte[]{1, 2}));
+        assertNotEquals(QueryCache.key(sql, 0, (Object) new byte[]{1, 2}), QueryCache.key(sql, 0, (Object) new byte[]{2, 1}));
+        Timestamp happened = Timestamp.valueOf("2021-03-01 10:15:30");
+        QueryCache.Key key = QueryCache.key(sql, 0, happened);
+        happened.setTime(0);
+        assertEquals(QueryCache.key(sql, 0, Timestamp.valueOf("2021-03-01 10:15:30")), key);
+    }
+
+    @Test
+    public void resultsAreBoundedByRows() throws Exception {
+        pAdeOrm.enableQueryCache(3, 0);
+        pAdeOrm.getWithCriterion(chicago, "no");
+        pAdeOrm.getWithCriterion(Collections.singletonList(new FieldPair("city", "Miami")), "no");
+        QueryCache cache = pAdeOrm.getQueryCache();
+        assertEquals(3, cache.getRowCount());
+        pAdeOrm.getWithCriterion(Collections.singletonList(new FieldPair("city", "New Orleans")), "no");
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        pAdeOrm.getWithCriterion(Collections.singletonList(new FieldPair("country", "United States")), "no");
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void queryDuringWriteIsNotCached() throws Exception {
+        BasicConnectionPoolUtil.initialize(URL, 4);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            pAdeOrm.enableQueryCache(100, 0);
+            try (Connection connection = BasicConnectionPoolUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("create trigger during_write before insert on post for each row call \"" +
+                        EntityCacheTest.DuringWrite.class.getName() + "\"");
+            }
+            EntityCacheTest.DuringWrite.action = () -> {
+                try {
+                    assertEquals(2, reader.submit(() -> pAdeOrm.getWithCriterion(chicago, "no"))
+                            .get(10, TimeUnit.SECONDS).size());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            pAdeOrm.add(new Post(0, "beta", "Deep Dish Pizza", "United States", "Chicago", "food", 5));
+            EntityCacheTest.DuringWrite.action = null;
+            assertEquals(3, pAdeOrm.getWithCriterion(chicago, "no").size());
+        } finally {
+            EntityCacheTest.DuringWrite.action = null;
+            reader.shutdown();
+            BasicConnectionPoolUtil.shutdown();
+        }
+    }
+
+    @AfterEach
+    public void runTeardown() throws Exception {
+        pAdeOrm.disableQueryCache();
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.pojo.Post;
+import dev.ade.project.util.BasicConnectionPoolUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileReader;
+import java.sql.Connection;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryOptionsTest {
+    private static final String URL = "jdbc:h2:mem:options;DB_CLOSE_DELAY=-1";
+
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+
+    @BeforeEach
+    public void runSetup() throws Exception {
+        // one connection, so every query reuses the same cached statements
+        BasicConnectionPoolUtil.initialize(URL, 1);
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    @Test
+    public void optionsApplyToTheirOwnQueriesOnly() throws Exception {
+        QueryOptions options = new QueryOptions();
+        options.setMaxRows(2);
+        AdeOrm<Post> limited = pAdeOrm.withOptions(options);
+        options.setMaxRows(1);
+
+        assertEquals(2, limited.getAll().size());
+        assertEquals(2, limited.getQueryOptions().getMaxRows());
+        assertEquals(4, pAdeOrm.getAll().size());
+        assertEquals(1, pAdeOrm.select().options(options).list().size());
+        assertEquals(2, limited.select().list().size());
+    }
+
+    @Test
+    public void readOnlyConnectionIsResetWhenReturned() throws Exception {
+        QueryOptions options = new QueryOptions();
+        options.setReadOnly(true);
+        options.setFetchSize(1);
+        AdeOrm<Post> readOnly = pAdeOrm.withOptions(options);
+
+        assertEquals(4, readOnly.getAll().size());
+        try (Stream<Post> posts = readOnly.select().stream()) {
+            assertEquals(4, posts.count());
+        }
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            assertFalse(connection.isReadOnly());
+        }
+        pAdeOrm.update2("rating", "post_id", 1, 5);
+        assertEquals(5, pAdeOrm.get("post_id", 1).getRating());
+    }
+
+    @AfterEach
+    public void runTeardown() throws Exception {
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+        BasicConnectionPoolUtil.shutdown();
+    }
+}
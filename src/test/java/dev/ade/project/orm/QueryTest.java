@@ -0,0 +1,108 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryTest {
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+
+    @BeforeEach
+    public void runSetup() throws SQLException, FileNotFoundException {
+        pAdeOrm.setConnection("jdbc:h2:mem:query;DB_CLOSE_DELAY=-1");
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    @Test
+    public void queryCompilesToParameterizedSql() throws ArgumentFormatException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = pAdeOrm.select()
+                .where(Condition.eq("country", "Italy"),
+                        Condition.or(Condition.between("rating", 2, 4), Condition.in("tag", "food", "movie")),
+                        Condition.isNull("city"))
+                .orderBy("rating", "desc")
+                .orderBy("post_id")
+                .limit(10)
+                .offset(20)
+                .toSql(parameters);
+        assertEquals("select * from post where country = ? and (rating between ? and ? or tag in (?, ?))" +
+                " and city is null order by rating desc, post_id asc limit ? offset ?", sql);
+        assertEquals(Arrays.asList("Italy", 2, 4, "food", "movie", 10, 20), parameters);
+    }
+
+    @Test
+    public void unknownColumnsAndWrongTypesAreRejected() {
+        assertThrows(ArgumentFormatException.class,
+                () -> pAdeOrm.select().where(Condition.eq("rating; drop table post", 1)).list());
+        assertThrows(ArgumentFormatException.class, () -> pAdeOrm.select().orderBy("nope").list());
+        assertThrows(ArgumentFormatException.class, () -> pAdeOrm.select().orderBy("rating", "up").list());
+        assertThrows(ArgumentFormatException.class,
+                () -> pAdeOrm.select().where(Condition.gt("rating", new Object())).list());
+        assertThrows(ArgumentFormatException.class,
+                () -> pAdeOrm.select().where(Condition.gt("rating", "three")).list());
+    }
+
+    @Test
+    public void stringValuesAreBoundAsTheColumnType() throws ArgumentFormatException {
+        List<Object> parameters = new ArrayList<>();
+        pAdeOrm.select().where(Condition.ge("rating", "3"), Condition.in("post_id", "1", 2L)).toSql(parameters);
+        assertEquals(Arrays.asList(3, 1, 2L), parameters);
+    }
+
+    @Test
+    public void queryFiltersOrdersAndPages() throws ArgumentFormatException {
+        List<Post> posts = pAdeOrm.select()
+                .where(Condition.eq("country", "United States"), Condition.ge("rating", 3))
+                .orderBy("post_id", "desc")
+                .limit(2)
+                .offset(1)
+                .list();
+        assertEquals(2, posts.size());
+        assertEquals(3, posts.get(0).getPostId());
+        assertEquals(2, posts.get(1).getPostId());
+
+        Post first = pAdeOrm.select().where(Condition.like("title", "%Ice Cream")).first();
+        assertEquals(4, first.getPostId());
+        assertNull(pAdeOrm.select().where(Condition.eq("city", "Rome")).first());
+    }
+
+    @Test
+    public void findAndColumnProjectionAreTyped() throws ArgumentFormatException {
+        Optional<Post> post = pAdeOrm.find("post_id", 4);
+        assertTrue(post.isPresent());
+        assertEquals("alpha", post.get().getUsername());
+        assertFalse(pAdeOrm.find("post_id", 99).isPresent());
+
+        List<Integer> ratings = pAdeOrm.select().where(Condition.eq("country", "United States"))
+                .orderBy("post_id").list("rating", Integer.class);
+        assertEquals(Arrays.asList(0, 5, 3, 3), ratings);
+        List<String> cities = pAdeOrm.select().orderBy("post_id").limit(2).list("city", String.class);
+        assertEquals(2, cities.size());
+        assertThrows(ArgumentFormatException.class, () -> pAdeOrm.select().list("rating", String.class));
+        assertThrows(ArgumentFormatException.class, () -> pAdeOrm.select().list("nope", Integer.class));
+    }
+
+    @AfterEach
+    public void runTeardown() throws SQLException, FileNotFoundException {
+        try (Connection connection = ConnectionUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+    }
+}
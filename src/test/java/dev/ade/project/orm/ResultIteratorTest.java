@@ -0,0 +1,83 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.util.BasicConnectionPoolUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileReader;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultIteratorTest {
+    private static final String URL = "jdbc:h2:mem:stream;DB_CLOSE_DELAY=-1";
+
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+
+    @BeforeEach
+    public void runSetup() throws Exception {
+        BasicConnectionPoolUtil.initialize(URL, 2);
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    @Test
+    public void streamReadsEveryRecordAndReleasesConnection() throws ArgumentFormatException {
+        List<Integer> ids;
+        try (Stream<Post> posts = pAdeOrm.select().orderBy("post_id").stream()) {
+            ids = posts.map(Post::getPostId).collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids);
+        assertEquals(0, BasicConnectionPoolUtil.getPool().getActiveCount());
+    }
+
+    @Test
+    public void iteratorReleasesConnectionWhenExhaustedOrClosed() throws ArgumentFormatException {
+        ResultIterator<Post> iterator = pAdeOrm.select().where(Condition.eq("city", "Chicago")).iterate(1);
+        assertEquals(1, BasicConnectionPoolUtil.getPool().getActiveCount());
+        int count = 0;
+        while (iterator.hasNext()) {
+            assertEquals("Chicago", iterator.next().getCity());
+            count++;
+        }
+        assertEquals(2, count);
+        assertEquals(0, BasicConnectionPoolUtil.getPool().getActiveCount());
+
+        try (ResultIterator<Post> partial = pAdeOrm.select().iterate()) {
+            assertNotNull(partial.next());
+        }
+        assertEquals(0, BasicConnectionPoolUtil.getPool().getActiveCount());
+    }
+
+    @Test
+    public void streamInsideSessionKeepsSessionConnection() throws Exception {
+        try (Session session = Session.open()) {
+            session.begin();
+            pAdeOrm.add(new Post(0, "alpha", "Risotto", "Italy", "Milan", "food", 4));
+            try (Stream<Post> posts = pAdeOrm.stream()) {
+                assertEquals(5, posts.count());
+            }
+            assertTrue(session.isTransaction());
+            assertFalse(session.getConnection().getAutoCommit());
+            session.rollback();
+        }
+        assertEquals(4, pAdeOrm.getAll().size());
+    }
+
+    @AfterEach
+    public void runTeardown() throws Exception {
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+        BasicConnectionPoolUtil.shutdown();
+    }
+}
@@ -0,0 +1,274 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.pojo.User;
+import dev.ade.project.util.BasicConnectionPoolUtil;
+import dev.ade.project.util.ConnectionUtil;
+import org.h2.tools.RunScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionTest {
+    private static final String URL = "jdbc:h2:mem:session;DB_CLOSE_DELAY=-1";
+
+    private final AdeOrm<User> uAdeOrm = new AdeOrm<>(User.class);
+    private final AdeOrm<Post> pAdeOrm = new AdeOrm<>(Post.class);
+
+    @BeforeEach
+    public void runSetup() throws Exception {
+        BasicConnectionPoolUtil.initialize(URL, 4);
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("setup.sql"));
+        }
+    }
+
+    @Test
+    public void transactionSpansEntitiesAndCommits() throws Exception {
+        try (Session session = Session.open()) {
+            session.begin();
+            uAdeOrm.add(new User("Ginny", "Weasley", 'F', "ginny", "password"));
+            pAdeOrm.add(new Post(0, "ginny", "Treacle Tart", "United Kingdom", "London", "food", 4));
+            session.commit();
+        }
+        assertNull(Session.current());
+        assertEquals(4, uAdeOrm.getAll().size());
+        assertEquals(5, pAdeOrm.getAll().size());
+    }
+
+    @Test
+    public void closingSessionRollsBackUncommittedWork() throws Exception {
+        try (Session session = Session.open()) {
+            session.begin();
+            uAdeOrm.add(new User("Ginny", "Weasley", 'F', "ginny", "password"));
+            assertEquals(4, uAdeOrm.getAll().size());
+        }
+        assertEquals(3, uAdeOrm.getAll().size());
+    }
+
+    @Test
+    public void closedConnectionFailsTheTransaction() throws Exception {
+        try (Session session = Session.open()) {
+            session.begin();
+            uAdeOrm.add(new User("Ginny", "Weasley", 'F', "ginny", "password"));
+            uAdeOrm.getConnection().close();
+            assertThrows(ArgumentFormatException.class,
+                    () -> uAdeOrm.add(new User("Ron", "Weasley", 'M', "ron", "password")));
+            assertThrows(ArgumentFormatException.class, session::commit);
+            session.rollback();
+            assertEquals(3, uAdeOrm.getAll().size());
+        }
+        assertEquals(3, uAdeOrm.getAll().size());
+    }
+
+    @Test
+    public void incompleteStatementPreventsCommit() throws Exception {
+        try (Session session = Session.open()) {
+            session.begin();
+            pAdeOrm.update2("rating", "post_id", 1, 4);
+            pAdeOrm.update2("rating", "post_id", 99, 4);
+            assertThrows(ArgumentFormatException.class, session::commit);
+            session.rollback();
+        }
+        assertEquals(0, pAdeOrm.get("post_id", 1).getRating());
+    }
+
+    @Test
+    public void sharedAdeOrmWorksAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int n = i;
+            futures.add(executor.submit(() -> {
+                try (Session session = Session.open()) {
+                    session.begin();
+                    for (int j = 0; j < 5; j++) {
+                        pAdeOrm.add(new Post(0, "alpha", "Title " + n + "-" + j, "Italy", "Rome", null, 3));
+                    }
+                    session.commit();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(44, pAdeOrm.getAll().size());
+    }
+
+    @Test
+    public void identityMapServesRepeatedLookups() throws Exception {
+        User first;
+        try (Session session = Session.open()) {
+            assertSame(session, Session.current());
+            first = uAdeOrm.get("username", "alpha");
+            try (Connection connection = BasicConnectionPoolUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update users set first_name = 'Lea' where username = 'alpha'");
+            }
+            assertSame(first, uAdeOrm.get("username", "alpha"));
+            assertEquals("Leah", first.getFirstName());
+            assertTrue(uAdeOrm.getAll().contains(first));
+            assertSame(first, uAdeOrm.getWithCriterion(
+                    Collections.singletonList(new FieldPair("first_name", "Lea")), "no").get(0));
+
+            uAdeOrm.update2("gender", "username", "alpha", "M");
+            User reloaded = uAdeOrm.get("username", "alpha");
+            assertNotSame(first, reloaded);
+            assertEquals("Lea", reloaded.getFirstName());
+        }
+        try (Session session = Session.open()) {
+            assertSame(session, Session.current());
+            assertNotSame(first, uAdeOrm.get("username", "alpha"));
+        }
+    }
+
+    @Test
+    public void updateSendsOnlyChangedColumns() throws Exception {
+        try (Session session = Session.open()) {
+            assertSame(session, Session.current());
+            Post post = pAdeOrm.get("post_id", 2);
+            assertTrue(pAdeOrm.update(post));
+            try (Connection connection = BasicConnectionPoolUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update post set title = 'Key Lime Pie' where post_id = 2");
+            }
+            post.setRating(4);
+            assertTrue(pAdeOrm.update(post));
+            post.setCity("Tampa");
+            assertTrue(pAdeOrm.update(post));
+        }
+        Post stored = pAdeOrm.get("post_id", 2);
+        assertEquals("Key Lime Pie", stored.getTitle());
+        assertEquals(4, stored.getRating());
+        assertEquals("Tampa", stored.getCity());
+    }
+
+    @Test
+    public void updateAllMapsOnlyTheRowsItUpdated() throws Exception {
+        try (Session session = Session.open()) {
+            assertSame(session, Session.current());
+            Post post = pAdeOrm.get("post_id", 2);
+            post.setRating(5);
+            Post missing = new Post(99, "alpha", "Gone", "Italy", "Rome", null, 1);
+            assertEquals(1, pAdeOrm.updateAll(Arrays.asList(post, missing)));
+            assertSame(post, pAdeOrm.get("post_id", 2));
+            assertNotSame(missing, pAdeOrm.get("post_id", 99));
+        }
+    }
+
+    @Test
+    public void updateSeesValuesChangedInPlace() throws Exception {
+        AdeOrm<PageTest.Event> eAdeOrm = new AdeOrm<>(PageTest.Event.class);
+        try (Connection connection = BasicConnectionPoolUtil.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table event(event_id serial primary key, happened timestamp not null)");
+            statement.execute("insert into event(happened) values ('2021-03-01 10:15:30')");
+        }
+        try {
+            try (Session session = Session.open()) {
+                assertSame(session, Session.current());
+                PageTest.Event event = eAdeOrm.get("event_id", 1);
+                assertSame(event, eAdeOrm.get("event_id", 1));
+                event.getHappened().setTime(Timestamp.valueOf("2022-04-02 11:00:00").getTime());
+                assertTrue(eAdeOrm.update(event));
+            }
+            assertEquals(Timestamp.valueOf("2022-04-02 11:00:00"), eAdeOrm.get("event_id", 1).getHappened());
+        } finally {
+            try (Connection connection = BasicConnectionPoolUtil.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("drop table event");
+            }
+        }
+    }
+
+    @Test
+    public void writeBehindFlushesOrderedWritesAtCommit() throws Exception {
+        Post post = new Post(0, "ginny", "Treacle Tart", "United Kingdom", "London", "food", 4);
+        try (Session session = Session.open()) {
+            User charlie = uAdeOrm.get("username", "charlie");
+            Post movie = pAdeOrm.get("post_id", 3);
+            session.setWriteBehind(true);
+            session.begin();
+            pAdeOrm.add(post);
+            uAdeOrm.add(new User("Ginny", "Weasley", 'F', "ginny", "password"));
+            post.setRating(5);
+            assertTrue(pAdeOrm.update(post));
+            assertTrue(uAdeOrm.delete(charlie));
+            assertTrue(pAdeOrm.delete(movie));
+            assertEquals(0, post.getPostId());
+            session.commit();
+        }
+        assertTrue(post.getPostId() > 0);
+        assertEquals(5, pAdeOrm.get("post_id", post.getPostId()).getRating());
+        assertEquals(3, uAdeOrm.getAll().size());
+        assertEquals(4, pAdeOrm.getAll().size());
+
+        try (Session session = Session.open()) {
+            session.setWriteBehind(true);
+            session.begin();
+            pAdeOrm.add(new Post(0, "alpha", "Beignets", "United States", "New Orleans", "food", 5));
+            assertEquals(5, pAdeOrm.getAll().size());
+        }
+        assertEquals(4, pAdeOrm.getAll().size());
+    }
+
+    @Test
+    public void writeBehindKeepsDeleteBeforeReinsertOfTheSameKey() throws Exception {
+        uAdeOrm.add(new User("Ginny", "Weasley", 'F', "ginny", "password"));
+        try (Session session = Session.open()) {
+            session.setWriteBehind(true);
+            session.begin();
+            assertTrue(uAdeOrm.delete(uAdeOrm.get("username", "ginny")));
+            assertTrue(uAdeOrm.add(new User("Ginevra", "Potter", 'F', "ginny", "password")));
+            session.commit();
+        }
+        assertEquals("Ginevra", uAdeOrm.get("username", "ginny").getFirstName());
+        assertEquals(4, uAdeOrm.getAll().size());
+    }
+
+    @Test
+    public void sessionWithoutPoolHasItsOwnConnection() throws Exception {
+        BasicConnectionPoolUtil.shutdown();
+        ConnectionUtil.setConnection(URL);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try (Session session = Session.open()) {
+            session.begin();
+            uAdeOrm.add(new User("Ginny", "Weasley", 'F', "ginny", "password"));
+            try (Connection shared = ConnectionUtil.getConnection()) {
+                assertNotSame(shared, session.getConnection());
+            }
+            assertEquals(3, other.submit(() -> uAdeOrm.getAll().size()).get(10, TimeUnit.SECONDS));
+            assertEquals(4, uAdeOrm.getAll().size());
+        } finally {
+            other.shutdown();
+            BasicConnectionPoolUtil.initialize(URL, 4);
+        }
+        assertEquals(3, uAdeOrm.getAll().size());
+    }
+
+    @AfterEach
+    public void runTeardown() throws Exception {
+        try (Connection connection = BasicConnectionPoolUtil.getConnection()) {
+            RunScript.execute(connection, new FileReader("teardown.sql"));
+        }
+        BasicConnectionPoolUtil.shutdown();
+    }
+}
@@ -0,0 +1,34 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.pojo.Post;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlTemplateCacheTest {
+    private final SqlTemplateCache templates = EntityMetadata.of(Post.class).getSqlTemplates();
+
+    @Test
+    public void insertTemplates() {
+        assertEquals("insert into post (post_id, username, title, country, city, tag, rating) " +
+                "values (?, ?, ?, ?, ?, ?, ?)", templates.get(SqlTemplateCache.Operation.INSERT));
+        assertEquals("insert into post (username, title, country, city, tag, rating) values (?, ?, ?, ?, ?, ?)",
+                templates.get(SqlTemplateCache.Operation.INSERT_WITHOUT_PK));
+    }
+
+    @Test
+    public void updateTemplateBindsPrimaryKeyLast() {
+        assertEquals("update post set username = ?, title = ?, country = ?, city = ?, tag = ?, rating = ? " +
+                "where post_id = ?", templates.get(SqlTemplateCache.Operation.UPDATE_BY_PK));
+        Post post = new Post(3, "beta", "Inception", "United States", "Gary", "movie", 4);
+        Object[] values = templates.getValues(SqlTemplateCache.Operation.UPDATE_BY_PK, post);
+        assertEquals(7, values.length);
+        assertEquals(3, values[6]);
+    }
+
+    @Test
+    public void selectTemplatesAreReused() {
+        assertEquals("select * from post", templates.get(SqlTemplateCache.Operation.SELECT_ALL));
+        assertSame(templates.selectBy("post_id"), templates.selectBy("post_id"));
+    }
+}
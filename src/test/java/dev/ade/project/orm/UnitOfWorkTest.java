@@ -0,0 +1,87 @@
+package dev.ade.project.orm;
+
+import dev.ade.project.annotations.ColumnName;
+import dev.ade.project.annotations.PrimaryKey;
+import dev.ade.project.annotations.TableName;
+import dev.ade.project.pojo.Post;
+import dev.ade.project.pojo.User;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitOfWorkTest {
+    private final List<String> batches = new ArrayList<>();
+
+    @TableName(tableName = "test_table")
+    public static class TestRow {
+        @PrimaryKey
+        @ColumnName(columnName = "prim_key")
+        private String primKey;
+
+        public TestRow() {}
+
+        public TestRow(String primKey) {
+            this.primKey = primKey;
+        }
+
+        public String getPrimKey() {
+            return primKey;
+        }
+
+        public void setPrimKey(String primKey) {
+            this.primKey = primKey;
+        }
+    }
+
+    private class RecordingOrm<T> extends AdeOrm<T> {
+        RecordingOrm(Class<T> clazz) {
+            super(clazz);
+        }
+
+        @Override
+        void flush(Connection conn, UnitOfWork.Kind kind, List<Object> pojos) {
+            batches.add(kind + " " + getMetadata().getTableName() + " " + pojos.size());
+        }
+    }
+
+    @Test
+    public void interleavedWritesAreBatchedPerTableInDependencyOrder() throws Exception {
+        RecordingOrm<User> users = new RecordingOrm<>(User.class);
+        RecordingOrm<User> otherUsers = new RecordingOrm<>(User.class);
+        RecordingOrm<Post> posts = new RecordingOrm<>(Post.class);
+        RecordingOrm<TestRow> rows = new RecordingOrm<>(TestRow.class);
+        UnitOfWork unitOfWork = new UnitOfWork();
+        User gone = new User("Jorge", "Ramos", 'M', "charlie", "password");
+        Post goneMovie = new Post(3, "charlie", "Inception", "United States", "Chicago", "movie", 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(unitOfWork.add(posts, UnitOfWork.Kind.INSERT, new Post(0, "u" + i, "t", "c", "c", null, 1)));
+            assertTrue(unitOfWork.add(i == 1 ? otherUsers : users, UnitOfWork.Kind.INSERT,
+                    new User("F", "L", 'F', "u" + i, "p")));
+            assertTrue(unitOfWork.add(rows, UnitOfWork.Kind.INSERT, new TestRow("r" + i)));
+        }
+        unitOfWork.add(users, UnitOfWork.Kind.DELETE, gone);
+        unitOfWork.add(posts, UnitOfWork.Kind.DELETE, goneMovie);
+
+        unitOfWork.flush(null);
+        assertEquals(Arrays.asList("INSERT test_table 3", "INSERT users 3", "INSERT post 3",
+                "DELETE post 1", "DELETE users 1"), batches);
+        assertTrue(unitOfWork.isEmpty());
+    }
+
+    @Test
+    public void writesOfTheSameKeyFromAnotherPojoWaitForAFlush() throws Exception {
+        RecordingOrm<User> users = new RecordingOrm<>(User.class);
+        UnitOfWork unitOfWork = new UnitOfWork();
+        User gone = new User("Jorge", "Ramos", 'M', "charlie", "password");
+        assertTrue(unitOfWork.add(users, UnitOfWork.Kind.DELETE, gone));
+        assertFalse(unitOfWork.add(users, UnitOfWork.Kind.INSERT,
+                new User("Charles", "Ramos", 'M', "charlie", "password")));
+        assertFalse(unitOfWork.add(users, UnitOfWork.Kind.UPDATE, gone));
+        assertTrue(unitOfWork.add(users, UnitOfWork.Kind.INSERT, new User("F", "L", 'F', "delta", "p")));
+    }
+}
@@ -1,10 +1,21 @@
 package dev.ade.project.util;
 
+import dev.ade.project.exception.ArgumentFormatException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class BasicConnectionPoolUtilTest {
 
@@ -14,4 +25,73 @@ public class BasicConnectionPoolUtilTest {
 
         assertTrue(connectionPool.getConnection().isValid(1));
     }*/
+
+    private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+    @BeforeEach
+    public void runSetup() throws SQLException, ArgumentFormatException {
+        List<Connection> connections = new ArrayList<>();
+        connections.add(DriverManager.getConnection(URL));
+        connections.add(DriverManager.getConnection(URL));
+        new BasicConnectionPoolUtil(URL, connections);
+    }
+
+    @Test
+    public void closingConnectionReturnsItToPool() throws SQLException {
+        Connection connection = BasicConnectionPoolUtil.getConnection();
+        assertEquals(2, BasicConnectionPoolUtil.getSize());
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertEquals(2, BasicConnectionPoolUtil.getSize());
+        assertFalse(BasicConnectionPoolUtil.releaseConnection(connection));
+    }
+
+    @Test
+    public void preparedStatementsAreReusedPerConnection() throws SQLException {
+        long hits = BasicConnectionPoolUtil.getStatementCacheHits();
+        Connection connection = BasicConnectionPoolUtil.getConnection();
+        try (PreparedStatement ps = connection.prepareStatement("select 1")) {
+            assertTrue(ps.executeQuery().next());
+        }
+        try (PreparedStatement ps = connection.prepareStatement("select 1")) {
+            assertTrue(ps.executeQuery().next());
+        }
+        assertTrue(BasicConnectionPoolUtil.releaseConnection(connection));
+        assertEquals(hits + 1, BasicConnectionPoolUtil.getStatementCacheHits());
+    }
+
+    @Test
+    public void reusedStatementHasNoOpenResultSet() throws SQLException {
+        Connection connection = BasicConnectionPoolUtil.getConnection();
+        ResultSet left;
+        try (PreparedStatement ps = connection.prepareStatement("select 1")) {
+            left = ps.executeQuery();
+            assertTrue(left.next());
+        }
+        assertTrue(left.isClosed());
+        try (PreparedStatement ps = connection.prepareStatement("select 1")) {
+            ResultSet rs = ps.getResultSet();
+            assertTrue(rs == null || rs.isClosed());
+            assertTrue(ps.executeQuery().next());
+        }
+        assertTrue(BasicConnectionPoolUtil.releaseConnection(connection));
+    }
+
+    @Test
+    public void uncachedStatementsAreClosedOnRelease() throws SQLException {
+        Connection connection = BasicConnectionPoolUtil.getConnection();
+        Statement statement = connection.createStatement();
+        CallableStatement call = connection.prepareCall("call 1");
+        PreparedStatement scrollable = connection.prepareStatement("select 1",
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        connection.close();
+        assertTrue(statement.isClosed());
+        assertTrue(call.isClosed());
+        assertTrue(scrollable.isClosed());
+    }
+
+    @AfterEach
+    public void runTeardown() {
+        BasicConnectionPoolUtil.shutdown();
+    }
 }
@@ -0,0 +1,217 @@
+package dev.ade.project.util;
+
+import dev.ade.project.exception.ArgumentFormatException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:bounded;DB_CLOSE_DELAY=-1";
+
+    private BoundedConnectionPool pool;
+
+    private BoundedConnectionPool createPool(int minSize, int maxSize, long acquireTimeout)
+            throws SQLException, ArgumentFormatException {
+        PoolConfig config = new PoolConfig(URL, maxSize);
+        config.setMinSize(minSize);
+        config.setAcquireTimeout(acquireTimeout);
+        config.setHousekeepingPeriod(0);
+        pool = new BoundedConnectionPool(config);
+        return pool;
+    }
+
+    @Test
+    public void poolNeverExceedsMaxSizeUnderContention() throws Exception {
+        createPool(2, 8, 10_000);
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger maxBorrowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(200);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.submit(() -> {
+                try (Connection connection = pool.getConnection();
+                     PreparedStatement ps = connection.prepareStatement("select 1")) {
+                    maxBorrowed.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+                    assertTrue(ps.executeQuery().next());
+                    borrowed.decrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(maxBorrowed.get() <= 8);
+        assertTrue(pool.getSize() <= 8);
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(pool.getSize(), pool.getIdleCount());
+    }
+
+    @Test
+    public void getConnectionTimesOutWhenPoolIsExhausted() throws Exception {
+        createPool(0, 1, 50);
+        Connection connection = pool.getConnection();
+        assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        connection.close();
+        try (Connection again = pool.getConnection()) {
+            assertFalse(again.isClosed());
+        }
+    }
+
+    @Test
+    public void housekeepingEvictsIdleConnectionsAboveMinSize() throws Exception {
+        createPool(1, 3, 1000);
+        pool.getConfig().setIdleTimeout(1);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+        assertEquals(3, pool.getSize());
+        Thread.sleep(5);
+        pool.housekeep();
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    public void brokenConnectionIsReplacedOnBorrow() throws Exception {
+        createPool(1, 1, 1000);
+        pool.getConfig().setValidationSkipWindow(0);
+        Connection connection = pool.getConnection();
+        PooledConnection broken = PooledConnection.from(connection);
+        connection.close();
+        broken.getPhysicalConnection().close();
+
+        try (Connection replacement = pool.getConnection();
+             PreparedStatement ps = replacement.prepareStatement("select 1")) {
+            assertNotSame(broken, PooledConnection.from(replacement));
+            assertTrue(ps.executeQuery().next());
+        }
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    public void keepAliveReplacesBrokenIdleConnections() throws Exception {
+        createPool(2, 2, 1000);
+        pool.getConfig().setTestQuery("select 1");
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        PooledConnection broken = PooledConnection.from(a);
+        a.close();
+        b.close();
+        broken.getPhysicalConnection().close();
+
+        pool.keepAlive(0);
+        assertEquals(2, pool.getSize());
+        assertEquals(2, pool.getIdleCount());
+        for (int i = 0; i < 2; i++) {
+            assertNotSame(broken, PooledConnection.from(pool.getConnection()));
+        }
+    }
+
+    @Test
+    public void metricsCountAcquiresTimeoutsAndCreations() throws Exception {
+        createPool(0, 1, 20);
+        AtomicInteger timeouts = new AtomicInteger();
+        pool.getMetrics().addListener(new PoolListener() {
+            @Override
+            public void onTimeout(long waitNanos) {
+                timeouts.incrementAndGet();
+            }
+        });
+        Connection connection = pool.getConnection();
+        assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        connection.close();
+
+        PoolMetrics metrics = pool.getMetrics();
+        assertEquals(1, metrics.getAcquireCount());
+        assertEquals(1, metrics.getTimeoutCount());
+        assertEquals(1, timeouts.get());
+        assertEquals(1, metrics.getCreatedCount());
+        assertEquals(1, Arrays.stream(metrics.getAcquireWaitHistogram()).sum());
+        assertEquals(metrics.getHistogramBounds().length, metrics.getCreationHistogram().length);
+        assertEquals(0, metrics.getActiveCount());
+        assertEquals(1, metrics.getIdleCount());
+    }
+
+    @Test
+    public void metricsAreRegisteredAsMbean() throws Exception {
+        PoolConfig config = new PoolConfig(URL, 2);
+        config.setPoolName("metricsTest");
+        config.setRegisterMbean(true);
+        pool = new BoundedConnectionPool(config);
+        ObjectName name = new ObjectName("dev.ade.project:type=ConnectionPool,name=\"metricsTest\"");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        pool.getConnection().close();
+        assertEquals(1L, server.getAttribute(name, "AcquireCount"));
+        assertEquals(2, server.getAttribute(name, "MaxSize"));
+
+        pool.shutdown();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void connectionsHeldPastThresholdAreReportedOnce() throws Exception {
+        createPool(0, 2, 1000);
+        pool.getConfig().setLeakDetectionThreshold(1);
+        pool.getConfig().setLeakTraceSampleRate(1);
+        Connection connection = pool.getConnection();
+        Thread.sleep(5);
+
+        pool.detectLeaks();
+        pool.detectLeaks();
+        assertEquals(1, pool.getMetrics().getLeakCount());
+        List<ConnectionLeak> leaks = pool.getLeaks();
+        assertEquals(1, leaks.size());
+        assertEquals(Thread.currentThread().getName(), leaks.get(0).getThreadName());
+        assertTrue(Arrays.stream(leaks.get(0).getStackTrace())
+                .anyMatch(e -> e.getMethodName().equals("connectionsHeldPastThresholdAreReportedOnce")));
+
+        connection.close();
+        assertTrue(pool.getLeaks().isEmpty());
+    }
+
+    @Test
+    public void failedFillClosesOpenedConnections() throws Exception {
+        Connection seeded = DriverManager.getConnection(URL);
+        PoolConfig config = new PoolConfig("jdbc:nodriver:bounded", 4);
+        config.setMinSize(2);
+        config.setHousekeepingPeriod(0);
+        assertThrows(SQLException.class, () -> new BoundedConnectionPool(config, Arrays.asList(seeded)));
+        assertTrue(seeded.isClosed());
+    }
+
+    @Test
+    public void invalidSizesAreRejected() {
+        assertThrows(ArgumentFormatException.class, () -> createPool(3, 2, 1000));
+        assertThrows(ArgumentFormatException.class, () -> createPool(0, 0, 1000));
+    }
+
+    @AfterEach
+    public void runTeardown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
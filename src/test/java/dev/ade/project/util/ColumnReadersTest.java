@@ -0,0 +1,55 @@
+package dev.ade.project.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnReadersTest {
+    private static Connection connection;
+
+    @BeforeAll
+    public static void runSetup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:readers");
+        try (Statement st = connection.createStatement()) {
+            st.execute("create table sample(i integer, d double, p numeric(10, 2), c varchar(1), day date, n integer)");
+            st.execute("insert into sample values (42, 1.5, 9.99, 'M', date '2021-06-01', null)");
+        }
+    }
+
+    @Test
+    public void readersReturnTypedValues() throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("select * from sample")) {
+            assertTrue(rs.next());
+            assertEquals(42, ColumnReaders.forType(int.class).read(rs, 1));
+            assertEquals(1.5, ColumnReaders.forType(Double.class).read(rs, 2));
+            assertEquals(new BigDecimal("9.99"), ColumnReaders.forType(BigDecimal.class).read(rs, 3));
+            assertEquals('M', ColumnReaders.forType(char.class).read(rs, 4));
+            assertEquals(LocalDate.of(2021, 6, 1), ColumnReaders.forType(LocalDate.class).read(rs, 5));
+        }
+    }
+
+    @Test
+    public void primitiveReaderReturnsNullForSqlNull() throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("select * from sample")) {
+            assertTrue(rs.next());
+            assertNull(ColumnReaders.forType(int.class).read(rs, 6));
+        }
+    }
+
+    @AfterAll
+    public static void runTeardown() throws SQLException {
+        connection.close();
+    }
+}
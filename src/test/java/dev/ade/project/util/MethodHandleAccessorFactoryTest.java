@@ -0,0 +1,43 @@
+package dev.ade.project.util;
+
+import dev.ade.project.pojo.User;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodHandleAccessorFactoryTest {
+    private final PropertyAccessorFactory factory = new MethodHandleAccessorFactory();
+
+    public static class NoAccessors {
+        private int count;
+        private final int fixed = 3;
+    }
+
+    @Test
+    public void accessorUsesGetterAndSetter() throws NoSuchFieldException {
+        PropertyAccessor accessor = factory.create(User.class, User.class.getDeclaredField("gender"));
+        User user = new User();
+        accessor.set(user, 'F');
+        assertEquals('F', user.getGender());
+        assertEquals('F', accessor.get(user));
+    }
+
+    @Test
+    public void accessorFallsBackToField() throws NoSuchFieldException {
+        PropertyAccessor accessor = factory.create(NoAccessors.class, NoAccessors.class.getDeclaredField("count"));
+        NoAccessors target = new NoAccessors();
+        accessor.set(target, 7);
+        assertEquals(7, target.count);
+        assertEquals(7, accessor.get(target));
+    }
+
+    @Test
+    public void unwritablePropertyNamesTheField() throws NoSuchFieldException {
+        PropertyAccessor accessor = factory.create(NoAccessors.class, NoAccessors.class.getDeclaredField("fixed"));
+        assertTrue(accessor.isReadable());
+        assertFalse(accessor.isWritable());
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> accessor.set(new NoAccessors(), 4));
+        assertTrue(e.getMessage().contains("NoAccessors.fixed"));
+    }
+}